@@ -0,0 +1,398 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// JSON over HTTP front end for one shared DatabaseManager, so many clients use the same gateway
+// pools and caches. Every request runs on its own virtual thread; the number of requests talking to
+// the database at once is capped by API_MAX_CONCURRENCY so a burst can't open unbounded connections.
+//   GET    /movies?page=0&size=20
+//   POST   /movies
+//   GET    /movies/{id}
+//   PUT    /movies/{id}
+//   DELETE /movies/{id}
+//   GET    /partitions
+//   GET    /regions
+public class ApiServer {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private final DatabaseManager dbManager;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits = new Semaphore(getConcurrencyFromEnvironment());
+
+    // Thrown by request parsing; becomes a 400 response
+    private static class BadRequestException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BadRequestException(String message) {
+            super(message);
+        }
+    }
+
+    private interface Route {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    public ApiServer(DatabaseManager dbManager, int port) throws IOException {
+        this.dbManager = dbManager;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/movies", exchange -> serve(exchange, this::movies));
+        server.createContext("/partitions", exchange -> serve(exchange, this::partitions));
+        server.createContext("/regions", exchange -> serve(exchange, this::regions));
+    }
+
+    public void start() {
+        server.start();
+        EventLog.info("api.started", "port", getPort());
+    }
+
+    // Waits up to a second for requests in flight
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        EventLog.info("api.stopped");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void serve(HttpExchange exchange, Route route) {
+        try {
+            if (!permits.tryAcquire(dbManager.getDefaultTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                sendError(exchange, 503, "UNAVAILABLE", "Too many concurrent requests");
+                return;
+            }
+            try {
+                route.handle(exchange);
+            } finally {
+                permits.release();
+            }
+        } catch (BadRequestException e) {
+            sendErrorQuietly(exchange, 400, "BAD_REQUEST", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendErrorQuietly(exchange, 503, "CANCELLED", "Server shutting down");
+        } catch (IOException e) {
+            // Usually the client went away; nothing left to answer
+            EventLog.warn("api.io_failed", "path", exchange.getRequestURI().getPath(), "message", e.getMessage());
+        } catch (RuntimeException e) {
+            EventLog.error("api.request_failed", "path", exchange.getRequestURI().getPath(), "error", e.toString());
+            sendErrorQuietly(exchange, 500, "ERROR", "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void movies(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if (path.equals("/movies") || path.equals("/movies/")) {
+            if (method.equals("GET")) {
+                listMovies(exchange);
+            } else if (method.equals("POST")) {
+                Movie movie = parseMovie(readBody(exchange));
+                sendMovie(exchange, dbManager.addMovie(movie, dbManager.defaultDeadline()), 201);
+            } else {
+                sendError(exchange, 405, "METHOD_NOT_ALLOWED", "Use GET or POST");
+            }
+            return;
+        }
+
+        UUID id = parseId(path.substring("/movies/".length()));
+        switch (method) {
+            case "GET":
+                sendMovie(exchange, dbManager.getMovieById(id, dbManager.defaultDeadline()), 200);
+                break;
+            case "PUT": {
+                Movie movie = parseMovie(readBody(exchange));
+                movie.setId(id);
+                sendMovie(exchange, dbManager.updateMovie(movie, dbManager.defaultDeadline()), 200);
+                break;
+            }
+            case "DELETE": {
+                DbResult<UUID> result = dbManager.deleteMovie(id, dbManager.defaultDeadline());
+                if (result.isOk()) {
+                    exchange.sendResponseHeaders(204, -1);
+                } else {
+                    sendError(exchange, result);
+                }
+                break;
+            }
+            default:
+                sendError(exchange, 405, "METHOD_NOT_ALLOWED", "Use GET, PUT or DELETE");
+        }
+    }
+
+    private void listMovies(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        int page = parseInt(query.get("page"), 0, "page");
+        int size = Math.min(MAX_PAGE_SIZE, parseInt(query.get("size"), DEFAULT_PAGE_SIZE, "size"));
+        if (page < 0 || size < 1) {
+            throw new BadRequestException("page must be >= 0 and size >= 1");
+        }
+        if (page > Integer.MAX_VALUE / size) {
+            throw new BadRequestException("page too large: " + page);
+        }
+        int offset = page * size;
+
+        DbResult<List<Movie>> result = dbManager.getMoviesPage(offset, size, dbManager.defaultDeadline());
+        String source = "cluster";
+        CatalogSnapshot snapshot = dbManager.getSnapshot();
+        if (result.getStatus() == DbResult.Status.UNAVAILABLE && snapshot != null) {
+            // Same fallback as the console: the hot movies from the last snapshot
+            List<Movie> cached = snapshot.getMovies();
+            int from = Math.min(offset, cached.size());
+            result = DbResult.ok(cached.subList(from, Math.min(from + size, cached.size())));
+            source = "snapshot";
+        }
+        if (!result.isOk()) {
+            sendError(exchange, result);
+            return;
+        }
+
+        JsonWriter json = beginResponse(exchange, 200);
+        json.beginObject()
+                .field("page", page)
+                .field("size", size)
+                .field("source", source)
+                .name("movies").beginArray();
+        for (Movie movie : result.getValue()) {
+            writeMovie(json, movie);
+        }
+        json.endArray().endObject();
+        json.flush();
+    }
+
+    private void partitions(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange)) {
+            return;
+        }
+        DbResult<List<Map<String, String>>> result = dbManager.showPartitions(dbManager.defaultDeadline());
+        CatalogSnapshot snapshot = dbManager.getSnapshot();
+        if (result.getStatus() == DbResult.Status.UNAVAILABLE && snapshot != null) {
+            // Same fallback as /movies: the partitions from the last snapshot
+            result = DbResult.ok(snapshot.getPartitions());
+        }
+        if (!result.isOk()) {
+            sendError(exchange, result);
+            return;
+        }
+
+        JsonWriter json = beginResponse(exchange, 200);
+        json.beginArray();
+        for (Map<String, String> partition : result.getValue()) {
+            json.beginObject();
+            for (Map.Entry<String, String> entry : partition.entrySet()) {
+                json.name(entry.getKey()).value(entry.getValue());
+            }
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    private void regions(HttpExchange exchange) throws IOException {
+        if (!requireGet(exchange)) {
+            return;
+        }
+        DbResult<List<String>> result = dbManager.getAvailableRegions(dbManager.defaultDeadline());
+        CatalogSnapshot snapshot = dbManager.getSnapshot();
+        if (result.getStatus() == DbResult.Status.UNAVAILABLE && snapshot != null) {
+            // Same fallback as /movies: the regions from the last snapshot
+            result = DbResult.ok(snapshot.getRegions());
+        }
+        if (!result.isOk()) {
+            sendError(exchange, result);
+            return;
+        }
+
+        JsonWriter json = beginResponse(exchange, 200);
+        json.beginArray();
+        for (String region : result.getValue()) {
+            json.value(region);
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    private boolean requireGet(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "METHOD_NOT_ALLOWED", "Use GET");
+            return false;
+        }
+        return true;
+    }
+
+    private void sendMovie(HttpExchange exchange, DbResult<Movie> result, int status) throws IOException {
+        if (!result.isOk()) {
+            sendError(exchange, result);
+            return;
+        }
+        JsonWriter json = beginResponse(exchange, status);
+        writeMovie(json, result.getValue());
+        json.flush();
+    }
+
+    private void writeMovie(JsonWriter json, Movie movie) throws IOException {
+        json.beginObject()
+                .field("id", movie.getId())
+                .field("titulo", movie.getTitulo())
+                .field("duracion_minutos", movie.getDuracion() != null ? movie.getDuracion().toMinutes() : null)
+                .field("fecha_estreno", movie.getFechaEstreno())
+                .field("clasificacion", movie.getClasificacion())
+                .field("region", movie.getRegion())
+                .field("created_at", movie.getCreatedAt() != null ? movie.getCreatedAt().toInstant() : null)
+                .endObject();
+    }
+
+    // Chunked response; the body is streamed as the JsonWriter produces it
+    private JsonWriter beginResponse(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+    }
+
+    private void sendError(HttpExchange exchange, DbResult<?> result) throws IOException {
+        sendError(exchange, statusCode(result.getStatus()), result.getStatus().name(), result.getMessage());
+    }
+
+    private void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        JsonWriter json = beginResponse(exchange, status);
+        json.beginObject().field("status", code).field("message", message).endObject();
+        json.flush();
+    }
+
+    // Headers may already be out if the failure happened mid-response; then the client just sees a cut-off body
+    private void sendErrorQuietly(HttpExchange exchange, int status, String code, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            sendError(exchange, status, code, message);
+        } catch (IOException e) {
+            // Client is gone
+        }
+    }
+
+    private static int statusCode(DbResult.Status status) {
+        switch (status) {
+            case OK: return 200;
+            case NOT_FOUND: return 404;
+            case TIMEOUT: return 504;
+            case CANCELLED:
+            case UNAVAILABLE: return 503;
+            default: return 500;
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new BadRequestException("Request body too large");
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Same fields and rules as the batch "add" command: titulo and region are required
+    private static Movie parseMovie(String body) {
+        Map<String, String> fields;
+        try {
+            fields = JsonReader.parseObject(body);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        String titulo = fields.get("titulo");
+        String region = fields.get("region");
+        if (titulo == null || titulo.trim().isEmpty() || region == null || region.trim().isEmpty()) {
+            throw new BadRequestException("titulo and region are required");
+        }
+
+        try {
+            String minutes = fields.get("duracion_minutos");
+            String date = fields.get("fecha_estreno");
+            String clasificacion = fields.get("clasificacion");
+            return new Movie(titulo.trim(),
+                    minutes != null ? Duration.ofMinutes(Long.parseLong(minutes)) : null,
+                    date != null && !date.isEmpty() ? LocalDate.parse(date) : null,
+                    clasificacion != null && !clasificacion.isEmpty() ? clasificacion : null,
+                    region.trim());
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Invalid field: " + e.getMessage());
+        }
+    }
+
+    private static UUID parseId(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid movie id: " + value);
+        }
+    }
+
+    private static int parseInt(String value, int fallback, String name) {
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        try {
+            for (String pair : rawQuery.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid query string");
+        }
+        return query;
+    }
+
+    // API_MAX_CONCURRENCY caps requests that use the database at the same time (default 32)
+    private static int getConcurrencyFromEnvironment() {
+        String value = System.getenv("API_MAX_CONCURRENCY");
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Math.max(1, Integer.parseInt(value.trim()));
+            } catch (NumberFormatException e) {
+                EventLog.warn("config.invalid", "name", "API_MAX_CONCURRENCY", "value", value);
+            }
+        }
+        return 32;
+    }
+}
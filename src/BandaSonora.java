@@ -0,0 +1,68 @@
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Row of the banda_sonora table, mapped by RowMapper
+public class BandaSonora {
+    private UUID id;
+    private String titulo;
+    private Duration duracion;
+    private LocalDate fecha;
+    private String clasificacion;
+
+    public BandaSonora() {
+    }
+
+    // Constructor without ID (for new rows)
+    public BandaSonora(String titulo, Duration duracion, LocalDate fecha, String clasificacion) {
+        this.titulo = titulo;
+        this.duracion = duracion;
+        this.fecha = fecha;
+        this.clasificacion = clasificacion;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getTitulo() {
+        return titulo;
+    }
+
+    public void setTitulo(String titulo) {
+        this.titulo = titulo;
+    }
+
+    public Duration getDuracion() {
+        return duracion;
+    }
+
+    public void setDuracion(Duration duracion) {
+        this.duracion = duracion;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public String getClasificacion() {
+        return clasificacion;
+    }
+
+    public void setClasificacion(String clasificacion) {
+        this.clasificacion = clasificacion;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BandaSonora[id=%s, titulo=%s, duracion=%s, fecha=%s, clasificacion=%s]", id, titulo, duracion, fecha, clasificacion);
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs '|'-separated commands, one per line, without the interactive menu:
+//   add|titulo|minutes|yyyy-MM-dd|clasificacion|region
+//   get|id
+//   update|id|titulo|minutes|yyyy-MM-dd|clasificacion|region
+//   delete|id
+//   partitions
+// Results are written one per line as "<line>\t<OK|ERROR>\t<command>\t<detail>" in input order.
+// Commands run concurrently, except that commands on the same id are executed in input order.
+public class BatchRunner {
+    private final DatabaseManager dbManager;
+    private final PrintStream out;
+    private final int concurrency;
+    private final int batchSize;
+
+    public BatchRunner(DatabaseManager dbManager, PrintStream out, int concurrency, int batchSize) {
+        this.dbManager = dbManager;
+        this.out = out;
+        this.concurrency = Math.max(1, concurrency);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // Returns the number of commands that failed
+    public int run(BufferedReader reader) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        // Bounded window of in-flight work so a huge input doesn't pile up in memory
+        Deque<Future<List<String>>> pending = new ArrayDeque<>();
+        int maxPending = concurrency * 4;
+        List<String[]> addBatch = new ArrayList<>();
+        Map<String, Future<List<String>>> lastById = new HashMap<>();
+        int failures = 0;
+        int lineNumber = 0;
+        String line;
+
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split("\\|", -1);
+                fields[0] = fields[0].trim().toLowerCase();
+
+                if (fields[0].equals("add")) {
+                    // Consecutive adds are sent to the database as one JDBC batch
+                    addBatch.add(withLineNumber(lineNumber, fields));
+                    if (addBatch.size() >= batchSize) {
+                        pending.add(submitAdds(executor, addBatch));
+                        addBatch = new ArrayList<>();
+                    }
+                } else {
+                    if (!addBatch.isEmpty()) {
+                        pending.add(submitAdds(executor, addBatch));
+                        addBatch = new ArrayList<>();
+                    }
+                    int currentLine = lineNumber;
+                    // Commands on the same id run one after the other, in input order
+                    String id = fields.length > 1 ? fields[1].trim() : null;
+                    Future<List<String>> previous = id != null ? lastById.get(id) : null;
+                    Future<List<String>> future = executor.submit(() -> {
+                        awaitQuietly(previous);
+                        return execute(currentLine, fields);
+                    });
+                    pending.add(future);
+                    if (id != null) {
+                        if (lastById.size() >= maxPending) {
+                            lastById.values().removeIf(Future::isDone);
+                        }
+                        lastById.put(id, future);
+                    }
+                }
+
+                while (pending.size() >= maxPending) {
+                    failures += writeResults(pending.poll());
+                }
+            }
+
+            if (!addBatch.isEmpty()) {
+                pending.add(submitAdds(executor, addBatch));
+            }
+            while (!pending.isEmpty()) {
+                failures += writeResults(pending.poll());
+            }
+        } finally {
+            executor.shutdownNow();
+            out.flush();
+        }
+
+        return failures;
+    }
+
+    private int writeResults(Future<List<String>> future) {
+        int failures = 0;
+        try {
+            for (String result : future.get()) {
+                if (result.startsWith("ERROR\t", result.indexOf('\t') + 1)) {
+                    failures++;
+                }
+                out.println(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            out.println("0\tERROR\tbatch\tinterrupted");
+            failures++;
+        } catch (ExecutionException e) {
+            out.println("0\tERROR\tbatch\t" + e.getCause().getMessage());
+            failures++;
+        }
+        return failures;
+    }
+
+    // Tasks only ever wait for tasks submitted before them, which the FIFO pool runs first
+    private static void awaitQuietly(Future<?> previous) throws InterruptedException {
+        if (previous == null) {
+            return;
+        }
+        try {
+            previous.get();
+        } catch (ExecutionException e) {
+            // Reported with its own line
+        }
+    }
+
+    private Future<List<String>> submitAdds(ExecutorService executor, List<String[]> batch) {
+        Callable<List<String>> task = () -> {
+            // Indexed by position in the batch so parse errors and insert results stay in input order
+            String[] results = new String[batch.size()];
+            List<Movie> movies = new ArrayList<>();
+            List<Integer> moviePositions = new ArrayList<>();
+
+            for (int i = 0; i < batch.size(); i++) {
+                String[] fields = batch.get(i);
+                try {
+                    movies.add(parseMovie(fields, 2));
+                    moviePositions.add(i);
+                } catch (IllegalArgumentException e) {
+                    results[i] = error(fields[0], "add", e.getMessage());
+                }
+            }
+
+            if (!movies.isEmpty()) {
+                DbResult<List<Movie>> result = dbManager.addMovies(movies, dbManager.defaultDeadline());
+                for (int i = 0; i < movies.size(); i++) {
+                    int position = moviePositions.get(i);
+                    String lineNumber = batch.get(position)[0];
+                    results[position] = result.isOk()
+                            ? ok(lineNumber, "add", String.valueOf(movies.get(i).getId()))
+                            : error(lineNumber, "add", result);
+                }
+            }
+            return Arrays.asList(results);
+        };
+        return executor.submit(task);
+    }
+
+    private List<String> execute(int lineNumber, String[] fields) {
+        List<String> results = new ArrayList<>();
+        String line = String.valueOf(lineNumber);
+        String command = fields[0];
+
+        try {
+            switch (command) {
+                case "get": {
+                    DbResult<Movie> result = dbManager.getMovieById(parseId(fields), dbManager.defaultDeadline());
+                    results.add(result.isOk() ? ok(line, command, formatMovie(result.getValue())) : error(line, command, result));
+                    break;
+                }
+                case "update": {
+                    Movie movie = parseMovie(fields, 2);
+                    movie.setId(parseId(fields));
+                    DbResult<Movie> result = dbManager.updateMovie(movie, dbManager.defaultDeadline());
+                    results.add(result.isOk() ? ok(line, command, String.valueOf(movie.getId())) : error(line, command, result));
+                    break;
+                }
+                case "delete": {
+                    DbResult<UUID> result = dbManager.deleteMovie(parseId(fields), dbManager.defaultDeadline());
+                    results.add(result.isOk() ? ok(line, command, String.valueOf(result.getValue())) : error(line, command, result));
+                    break;
+                }
+                case "partitions": {
+                    DbResult<List<Map<String, String>>> result = dbManager.showPartitions(dbManager.defaultDeadline());
+                    if (!result.isOk()) {
+                        results.add(error(line, command, result));
+                        break;
+                    }
+                    for (Map<String, String> partition : result.getValue()) {
+                        StringBuilder detail = new StringBuilder();
+                        for (Map.Entry<String, String> entry : partition.entrySet()) {
+                            if (detail.length() > 0) {
+                                detail.append(' ');
+                            }
+                            detail.append(entry.getKey()).append('=').append(entry.getValue());
+                        }
+                        results.add(ok(line, command, detail.toString()));
+                    }
+                    break;
+                }
+                default:
+                    results.add(error(line, command, "unknown command"));
+            }
+        } catch (IllegalArgumentException e) {
+            results.add(error(line, command, e.getMessage()));
+        }
+        return results;
+    }
+
+    // Parses titulo|minutes|date|clasificacion|region starting at the given field
+    private Movie parseMovie(String[] fields, int start) {
+        if (fields.length < start + 5) {
+            throw new IllegalArgumentException("expected titulo|minutes|date|clasificacion|region");
+        }
+        String titulo = fields[start].trim();
+        String minutes = fields[start + 1].trim();
+        String date = fields[start + 2].trim();
+        String clasificacion = fields[start + 3].trim();
+        String region = fields[start + 4].trim();
+
+        if (titulo.isEmpty() || region.isEmpty()) {
+            throw new IllegalArgumentException("titulo and region are required");
+        }
+
+        try {
+            Duration duracion = minutes.isEmpty() ? null : Duration.ofMinutes(Long.parseLong(minutes));
+            LocalDate fechaEstreno = date.isEmpty() ? null : LocalDate.parse(date);
+            return new Movie(titulo, duracion, fechaEstreno, clasificacion.isEmpty() ? null : clasificacion, region);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("invalid field: " + e.getMessage());
+        }
+    }
+
+    private UUID parseId(String[] fields) {
+        if (fields.length < 2 || fields[1].trim().isEmpty()) {
+            throw new IllegalArgumentException("missing id");
+        }
+        return UUID.fromString(fields[1].trim());
+    }
+
+    private String[] withLineNumber(int lineNumber, String[] fields) {
+        // Shift the add fields so index 0 holds the line number and parseMovie starts at 2
+        String[] shifted = new String[fields.length + 1];
+        shifted[0] = String.valueOf(lineNumber);
+        System.arraycopy(fields, 0, shifted, 1, fields.length);
+        return shifted;
+    }
+
+    private String formatMovie(Movie movie) {
+        return movie.getId() + "\t" + movie.getTitulo() + "\t"
+                + (movie.getDuracion() != null ? movie.getDuracion().toMinutes() : "") + "\t"
+                + (movie.getFechaEstreno() != null ? movie.getFechaEstreno() : "") + "\t"
+                + (movie.getClasificacion() != null ? movie.getClasificacion() : "") + "\t"
+                + movie.getRegion();
+    }
+
+    private String ok(String line, String command, String detail) {
+        return line + "\tOK\t" + command + "\t" + detail;
+    }
+
+    private String error(String line, String command, String message) {
+        return line + "\tERROR\t" + command + "\t" + message;
+    }
+
+    // Keeps the failure kind (TIMEOUT, UNAVAILABLE, ...) in the output so jobs can retry selectively
+    private String error(String line, String command, DbResult<?> result) {
+        return error(line, command, result.toString());
+    }
+}
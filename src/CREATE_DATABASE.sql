@@ -11,6 +11,8 @@ CREATE TABLE pelicula (
 
 ALTER TABLE pelicula SET LOCALITY REGIONAL BY ROW AS region;
 
+-- Secondary indexes are added at startup by MigrationRunner (tracked in schema_migrations)
+
 CREATE TABLE director (
   id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
   nombre STRING,
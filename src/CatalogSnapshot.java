@@ -0,0 +1,238 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Last known region topology, partitions and hot movies, persisted to a small binary file so the
+// application can show something immediately while the cluster connection is still being set up.
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x44534E50; // "DSNP"
+    private static final int FORMAT_VERSION = 1;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    // Smallest encoded sizes: a null string is just its length, a movie is five longs and three strings
+    private static final int STRING_MIN_BYTES = 4;
+    private static final int MOVIE_MIN_BYTES = 5 * 8 + 3 * STRING_MIN_BYTES;
+
+    private final long savedAt;
+    private final List<String> regions;
+    private final List<Map<String, String>> partitions;
+    private final List<Movie> movies;
+
+    public CatalogSnapshot(long savedAt, List<String> regions, List<Map<String, String>> partitions, List<Movie> movies) {
+        this.savedAt = savedAt;
+        this.regions = Collections.unmodifiableList(new ArrayList<>(regions));
+        this.partitions = Collections.unmodifiableList(new ArrayList<>(partitions));
+        this.movies = Collections.unmodifiableList(new ArrayList<>(movies));
+    }
+
+    // Returns null if the file doesn't exist or can't be read
+    public static CatalogSnapshot load(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            // Read onto the heap rather than mapped: a mapping stays open until it is garbage
+            // collected, and on Windows that makes the replace in save() fail
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            long savedAt = buffer.getLong();
+
+            int regionCount = readCount(buffer, STRING_MIN_BYTES);
+            List<String> regions = new ArrayList<>(regionCount);
+            for (int i = 0; i < regionCount; i++) {
+                regions.add(readString(buffer));
+            }
+
+            int columnCount = readCount(buffer, STRING_MIN_BYTES);
+            String[] columns = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columns[i] = readString(buffer);
+            }
+            // Rows without columns take no space, so any count of them would pass the size check
+            int partitionCount = columnCount > 0 ? readCount(buffer, columnCount * STRING_MIN_BYTES) : readCount(buffer, Integer.MAX_VALUE);
+            List<Map<String, String>> partitions = new ArrayList<>(partitionCount);
+            for (int i = 0; i < partitionCount; i++) {
+                Map<String, String> row = new LinkedHashMap<>();
+                for (String column : columns) {
+                    row.put(column, readString(buffer));
+                }
+                partitions.add(row);
+            }
+
+            int movieCount = readCount(buffer, MOVIE_MIN_BYTES);
+            List<Movie> movies = new ArrayList<>(movieCount);
+            for (int i = 0; i < movieCount; i++) {
+                movies.add(readMovie(buffer));
+            }
+
+            return new CatalogSnapshot(savedAt, regions, partitions, movies);
+        } catch (IOException | RuntimeException e) {
+            // A corrupt or truncated snapshot is just ignored, the cluster is the source of truth
+            return null;
+        }
+    }
+
+    // Writes to a temporary file first so a crash never leaves a half-written snapshot behind
+    public void save(File file) throws IOException {
+        ByteBuffer content = encode();
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private ByteBuffer encode() {
+        List<byte[]> strings = new ArrayList<>();
+        int size = 4 + 4 + 8;
+
+        size += 4;
+        for (String region : regions) {
+            size += addString(strings, region);
+        }
+
+        List<String> columns = partitions.isEmpty() ? new ArrayList<>() : new ArrayList<>(partitions.get(0).keySet());
+        size += 4;
+        for (String column : columns) {
+            size += addString(strings, column);
+        }
+        size += 4;
+        for (Map<String, String> row : partitions) {
+            for (String column : columns) {
+                size += addString(strings, row.get(column));
+            }
+        }
+
+        size += 4;
+        for (Movie movie : movies) {
+            size += 8 + 8 + 8 + 8 + 8;
+            size += addString(strings, movie.getTitulo());
+            size += addString(strings, movie.getClasificacion());
+            size += addString(strings, movie.getRegion());
+        }
+
+        // Strings are written back in the same order they were measured
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        int next = 0;
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(savedAt);
+
+        buffer.putInt(regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            writeString(buffer, strings.get(next++));
+        }
+
+        buffer.putInt(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            writeString(buffer, strings.get(next++));
+        }
+        buffer.putInt(partitions.size());
+        for (int i = 0; i < partitions.size() * columns.size(); i++) {
+            writeString(buffer, strings.get(next++));
+        }
+
+        buffer.putInt(movies.size());
+        for (Movie movie : movies) {
+            UUID id = movie.getId();
+            buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+            buffer.putLong(movie.getDuracion() != null ? movie.getDuracion().getSeconds() : NULL_LONG);
+            buffer.putLong(movie.getFechaEstreno() != null ? movie.getFechaEstreno().toEpochDay() : NULL_LONG);
+            buffer.putLong(movie.getCreatedAt() != null ? movie.getCreatedAt().getTime() : NULL_LONG);
+            writeString(buffer, strings.get(next++));
+            writeString(buffer, strings.get(next++));
+            writeString(buffer, strings.get(next++));
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int addString(List<byte[]> strings, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        strings.add(bytes);
+        return 4 + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    // Element count that the rest of the buffer can actually hold, checked before anything is allocated
+    private static int readCount(ByteBuffer buffer, int minItemBytes) {
+        int count = buffer.getInt();
+        if (count < 0 || (count > 0 && count > buffer.remaining() / minItemBytes)) {
+            throw new IllegalArgumentException("Invalid element count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Movie readMovie(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        long seconds = buffer.getLong();
+        long epochDay = buffer.getLong();
+        long createdAt = buffer.getLong();
+        String titulo = readString(buffer);
+        String clasificacion = readString(buffer);
+        String region = readString(buffer);
+
+        return new Movie(id, titulo,
+                seconds != NULL_LONG ? Duration.ofSeconds(seconds) : null,
+                epochDay != NULL_LONG ? LocalDate.ofEpochDay(epochDay) : null,
+                clasificacion, region,
+                createdAt != NULL_LONG ? new Timestamp(createdAt) : null);
+    }
+
+    // Wall clock time the snapshot was taken
+    public long getSavedAt() {
+        return savedAt;
+    }
+
+    public List<String> getRegions() {
+        return regions;
+    }
+
+    public List<Map<String, String>> getPartitions() {
+        return partitions;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+}
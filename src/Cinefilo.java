@@ -0,0 +1,57 @@
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Row of the cinefilo table, mapped by RowMapper
+public class Cinefilo {
+    private UUID id;
+    private String nombre;
+    private String correo;
+    private LocalDate fechaNacimiento;
+
+    public Cinefilo() {
+    }
+
+    // Constructor without ID (for new rows)
+    public Cinefilo(String nombre, String correo, LocalDate fechaNacimiento) {
+        this.nombre = nombre;
+        this.correo = correo;
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getCorreo() {
+        return correo;
+    }
+
+    public void setCorreo(String correo) {
+        this.correo = correo;
+    }
+
+    public LocalDate getFechaNacimiento() {
+        return fechaNacimiento;
+    }
+
+    public void setFechaNacimiento(LocalDate fechaNacimiento) {
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cinefilo[id=%s, nombre=%s, correo=%s, fecha_nacimiento=%s]", id, nombre, correo, fechaNacimiento);
+    }
+}
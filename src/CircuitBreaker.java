@@ -0,0 +1,72 @@
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+    // A trial whose outcome is never reported must not keep the circuit half-open forever
+    private static final long TRIAL_TIMEOUT_MILLIS = 30000;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+    private long retryAt = 0;
+    private boolean trialInFlight = false;
+    private long trialStartedAt = 0;
+
+    // While open, callers are rejected immediately; once the backoff has elapsed a single trial is let through
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.currentTimeMillis() >= retryAt) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            long now = System.currentTimeMillis();
+            if (trialInFlight && now - trialStartedAt < TRIAL_TIMEOUT_MILLIS) {
+                return false;
+            }
+            trialInFlight = true;
+            trialStartedAt = now;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        backoffMillis = INITIAL_BACKOFF_MILLIS;
+        trialInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+
+        if (state == State.HALF_OPEN) {
+            // The trial failed, wait longer before the next one
+            backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF_MILLIS);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        retryAt = System.currentTimeMillis() + backoffMillis;
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    // Milliseconds until the next trial is allowed, 0 if not open
+    public synchronized long getRetryInMillis() {
+        return state == State.OPEN ? Math.max(0, retryAt - System.currentTimeMillis()) : 0;
+    }
+}
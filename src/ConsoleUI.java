@@ -2,16 +2,24 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class ConsoleUI {
     private DatabaseManager dbManager;
     private Scanner scanner;
     private boolean running;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final int PAGE_SIZE = 20;
+    // The first refresh runs two ranking queries, each bounded by the default operation deadline
+    private static final long RANKINGS_WAIT_SECONDS = 30;
+    private static final String[] MOVIE_HEADERS = {"ID", "Title", "Duration", "Release", "Rating", "Region", "Created"};
+    private static final int[] MOVIE_WIDTHS = {37, 30, 20, 11, 8, 18, 22};
     
     public ConsoleUI(DatabaseManager dbManager) {
         this.dbManager = dbManager;
@@ -49,6 +57,12 @@ public class ConsoleUI {
                     checkDatabaseConnection();
                     break;
                 case 8:
+                    showSlowQueries();
+                    break;
+                case 9:
+                    showRankings();
+                    break;
+                case 10:
                     running = false;
                     System.out.println("Exiting application. Goodbye!");
                     break;
@@ -69,11 +83,21 @@ public class ConsoleUI {
         System.out.println("################################################");
         System.out.println();
         
-        if (!dbManager.isConnected()) {
+        CatalogSnapshot snapshot = dbManager.getSnapshot();
+        // Checked first: before the first attempt has finished, isConnected() says nothing yet
+        if (!dbManager.isConnecting() && dbManager.isConnected()) {
+            return;
+        }
+        if (dbManager.isConnecting()) {
+            System.out.println("Connecting to the database in the background.");
+        } else {
             System.out.println("WARNING: Running in offline mode. Database operations will not work.");
             System.out.println("Make sure the PostgreSQL JDBC driver is in your classpath.");
-            System.out.println();
         }
+        if (snapshot != null) {
+            System.out.println("Listings show cached data from " + new java.sql.Timestamp(snapshot.getSavedAt()) + " until the database answers.");
+        }
+        System.out.println();
     }
     
     private void printMenu() {
@@ -87,7 +111,9 @@ public class ConsoleUI {
         System.out.println("5. Delete a movie");
         System.out.println("6. Show database partitions");
         System.out.println("7. Check database connection");
-        System.out.println("8. Exit");
+        System.out.println("8. Show slow queries");
+        System.out.println("9. Show most favorited movies and soundtracks");
+        System.out.println("10. Exit");
         System.out.println("################################################");
     }
     
@@ -104,6 +130,98 @@ public class ConsoleUI {
             System.out.println("Run the application with: java -cp bin:postgresql-42.7.5.jar Main");
         }
         
+        // Live per-gateway state from the background health checks
+        List<Gateway> gateways = dbManager.getGateways();
+        if (!gateways.isEmpty()) {
+            System.out.println();
+            System.out.println(String.format("%-20s%-12s%-12s%-12s%-12s%s",
+                    "Gateway", "State", "Last RTT", "Avg RTT", "Checked", "Last error"));
+            long now = System.currentTimeMillis();
+            for (Gateway gateway : gateways) {
+                CircuitBreaker breaker = gateway.getBreaker();
+                String state = breaker.getState().toString();
+                if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                    state += " " + (breaker.getRetryInMillis() / 1000) + "s";
+                }
+                System.out.println(String.format("%-20s%-12s%-12s%-12s%-12s%s",
+                        gateway.getRegion() != null ? gateway.getRegion() : "default",
+                        state,
+                        gateway.getLastRttMillis() < 0 ? "N/A" : String.format("%.1f ms", gateway.getLastRttMillis()),
+                        gateway.getRttMillis() < 0 ? "N/A" : String.format("%.1f ms", gateway.getRttMillis()),
+                        gateway.getLastCheckedAt() == 0 ? "never" : ((now - gateway.getLastCheckedAt()) / 1000) + "s ago",
+                        gateway.getLastError() != null ? gateway.getLastError() : "-"));
+            }
+        }
+        
+        System.out.println("################################################");
+    }
+    
+    private void showRankings() {
+        System.out.println("\n################################################");
+        System.out.println("#              POPULARITY RANKINGS             #");
+        System.out.println("################################################");
+        
+        PopularityRankings rankings = dbManager.getRankings();
+        // The background refresher starts on first use; wait for its first run rather than query twice
+        if (rankings.getRefreshedAt() == 0) {
+            System.out.println("Computing rankings...");
+            rankings.awaitFirstRefresh(RANKINGS_WAIT_SECONDS, TimeUnit.SECONDS);
+        }
+        if (rankings.getRefreshedAt() == 0) {
+            System.out.println("Rankings have not been computed yet.");
+            System.out.println("################################################");
+            return;
+        }
+        
+        System.out.println("Most favorited movies:");
+        printRanking(rankings.getTopMovies());
+        
+        for (String region : rankings.getRegions()) {
+            System.out.println("\nMost favorited movies in " + region + ":");
+            printRanking(rankings.getTopMovies(region));
+        }
+        
+        System.out.println("\nMost favorited soundtracks:");
+        printRanking(rankings.getTopBandas());
+        
+        System.out.println("################################################");
+    }
+    
+    private void printRanking(List<PopularityRankings.RankedItem> items) {
+        if (items.isEmpty()) {
+            System.out.println("No favorites recorded.");
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            PopularityRankings.RankedItem item = items.get(i);
+            System.out.println(String.format("%2d. %-40s %6d favorites", i + 1, item.getTitulo(), item.getFavoritos()));
+        }
+    }
+    
+    private void showSlowQueries() {
+        System.out.println("\n################################################");
+        System.out.println("#                SLOW QUERIES                  #");
+        System.out.println("################################################");
+        
+        SlowQueryLog slowQueryLog = dbManager.getSlowQueryLog();
+        if (slowQueryLog == null) {
+            System.out.println("Slow query log not available.");
+            System.out.println("################################################");
+            return;
+        }
+        
+        List<SlowQueryLog.Entry> entries = slowQueryLog.getEntries();
+        System.out.println("Threshold: " + slowQueryLog.getThresholdMillis() + " ms, log file: " + slowQueryLog.getFile().getPath());
+        
+        if (entries.isEmpty()) {
+            System.out.println("No slow queries recorded.");
+        } else {
+            for (SlowQueryLog.Entry entry : entries) {
+                System.out.println(entry);
+                System.out.println("------------------------------------------------");
+            }
+        }
+        
         System.out.println("################################################");
     }
     
@@ -113,9 +231,12 @@ public class ConsoleUI {
         System.out.println("################################################");
         
         if (!dbManager.isConnected()) {
-            System.out.println("Cannot show partitions: Database connection not available.");
-            System.out.println("################################################");
-            return;
+            if (dbManager.getSnapshot() == null) {
+                System.out.println("Cannot show partitions: Database connection not available.");
+                System.out.println("################################################");
+                return;
+            }
+            System.out.println("Database connection not available yet. Showing cached partitions.");
         }
         
         List<Map<String, String>> partitions = dbManager.showPartitions();
@@ -123,26 +244,19 @@ public class ConsoleUI {
         if (partitions.isEmpty()) {
             System.out.println("No partition information available.");
         } else {
-            // Print header
-            Map<String, String> firstRow = partitions.get(0);
-            for (String columnName : firstRow.keySet()) {
-                System.out.print(String.format("%-20s", columnName));
-            }
-            System.out.println();
+            String[] headers = partitions.get(0).keySet().toArray(new String[0]);
+            int[] widths = new int[headers.length];
+            Arrays.fill(widths, 20);
             
-            // Print separator
-            for (int i = 0; i < firstRow.size() * 20; i++) {
-                System.out.print("-");
-            }
-            System.out.println();
-            
-            // Print data rows
-            for (Map<String, String> row : partitions) {
-                for (String value : row.values()) {
-                    System.out.print(String.format("%-20s", value != null ? value : "NULL"));
+            // Partition metadata is already in memory, so pages are just slices of it
+            PagedTableRenderer renderer = new PagedTableRenderer(headers, widths, PAGE_SIZE, scanner);
+            renderer.render((offset, limit) -> {
+                List<String[]> rows = new ArrayList<>();
+                for (int i = offset; i < Math.min(offset + limit, partitions.size()); i++) {
+                    rows.add(partitions.get(i).values().toArray(new String[0]));
                 }
-                System.out.println();
-            }
+                return rows;
+            });
         }
         
         System.out.println("\nThis shows the vertical fragmentation of the database across multiple regions.");
@@ -272,21 +386,30 @@ public class ConsoleUI {
         System.out.println("################################################");
         
         if (!dbManager.isConnected()) {
-            System.out.println("Cannot view movies: Database connection not available.");
-            System.out.println("################################################");
-            return;
+            if (dbManager.getSnapshot() == null) {
+                System.out.println("Cannot view movies: Database connection not available.");
+                System.out.println("################################################");
+                return;
+            }
+            System.out.println("Database connection not available yet. Showing cached movies.");
         }
         
-        List<Movie> movies = dbManager.getAllMovies();
-        
-        if (movies.isEmpty()) {
-            System.out.println("No movies found in the database.");
-        } else {
-            for (Movie movie : movies) {
-                System.out.println(movie);
-                System.out.println("------------------------------------------------");
+        PagedTableRenderer renderer = new PagedTableRenderer(MOVIE_HEADERS, MOVIE_WIDTHS, PAGE_SIZE, scanner);
+        renderer.render((offset, limit) -> {
+            List<String[]> rows = new ArrayList<>();
+            for (Movie movie : dbManager.getMoviesPage(offset, limit)) {
+                rows.add(new String[] {
+                    String.valueOf(movie.getId()),
+                    movie.getTitulo(),
+                    movie.getFormattedDuration(),
+                    movie.getFormattedFechaEstreno(),
+                    movie.getClasificacion() != null ? movie.getClasificacion() : "N/A",
+                    movie.getRegion(),
+                    movie.getCreatedAt() != null ? movie.getCreatedAt().toString() : "N/A"
+                });
             }
-        }
+            return rows;
+        });
         
         System.out.println("################################################");
     }
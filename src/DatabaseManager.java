@@ -1,294 +1,568 @@
+import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.time.Duration;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.UUID;
+import java.util.function.Consumer;
 
-public class DatabaseManager {
-    private Connection connection;
+public final class DatabaseManager {
+    private volatile GatewayRouter router;
+    private volatile SlowQueryLog slowQueryLog;
+    private PopularityRankings rankings;
     private static final String TABLE_NAME = "pelicula";
-    private boolean isConnected = false;
+    private static final int SNAPSHOT_MOVIES = 100;
+    private static final int MOVIE_CACHE_SIZE = 1000;
+    private static final long MOVIE_CACHE_TTL_MILLIS = 30000;
+    private volatile boolean driverLoaded = false;
+    private volatile Duration defaultTimeout = Duration.ofMillis(getTimeoutFromEnvironment());
+    private File snapshotFile;
+    private volatile CatalogSnapshot snapshot;
+    private volatile boolean closed = false;
+    // True while the warm-start thread is still making its first connection attempt
+    private volatile boolean connecting = false;
+    // Movies by id; holds private copies because Movie is mutable
+    private final LruCache<UUID, Movie> movieCache = new LruCache<>(MOVIE_CACHE_SIZE, MOVIE_CACHE_TTL_MILLIS);
+    private static final RowMapper<Movie> MOVIE_MAPPER = new RowMapper<>(Movie.class, TABLE_NAME,
+            "id", "titulo", "duracion", "fecha_estreno", "clasificacion", "region", "created_at");
+    
+    // The other tables of CREATE_DATABASE.sql
+    private final TableDao<Director> directores = new TableDao<>(this,
+            new RowMapper<>(Director.class, "director", "id", "nombre", "fecha_nacimiento", "nacionalidad"));
+    private final TableDao<BandaSonora> bandasSonoras = new TableDao<>(this,
+            new RowMapper<>(BandaSonora.class, "banda_sonora", "id", "titulo", "duracion", "fecha", "clasificacion"));
+    private final TableDao<Autor> autores = new TableDao<>(this,
+            new RowMapper<>(Autor.class, "autor", "id", "nombre", "fecha_nacimiento"));
+    private final TableDao<Interprete> interpretes = new TableDao<>(this,
+            new RowMapper<>(Interprete.class, "interprete", "id", "nombre", "fecha_nacimiento"));
+    private final TableDao<Cinefilo> cinefilos = new TableDao<>(this,
+            new RowMapper<>(Cinefilo.class, "cinefilo", "id", "nombre", "correo", "fecha_nacimiento"));
+    private final LinkDao peliculaDirector = new LinkDao(this, "pelicula_director", "pelicula_id", "director_id");
+    private final LinkDao bandaAutor = new LinkDao(this, "banda_autor", "banda_id", "autor_id");
+    private final LinkDao bandaInterprete = new LinkDao(this, "banda_interprete", "banda_id", "interprete_id");
+    private final LinkDao peliculasFavoritas = new LinkDao(this, "cinefilo_pelicula_favorita", "cinefilo_id", "pelicula_id");
+    private final LinkDao bandasFavoritas = new LinkDao(this, "cinefilo_banda_favorita", "cinefilo_id", "banda_id");
     
     public DatabaseManager() {
+        if (configure()) {
+            connect();
+        }
+        
+        rankings = new PopularityRankings(this);
+    }
+    
+    // Warm start: comes up immediately with the last saved topology and hot movies, connects to
+    // the cluster in the background and then refreshes the snapshot from it
+    public DatabaseManager(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+        this.snapshot = CatalogSnapshot.load(snapshotFile);
+        
+        // Configuring is local and quick, so a missing driver or gateway is known before the menu shows
+        if (configure()) {
+            connecting = true;
+            Thread connector = new Thread(() -> {
+                try {
+                    connect();
+                } finally {
+                    connecting = false;
+                }
+                revalidateSnapshot();
+            }, "warm-start");
+            connector.setDaemon(true);
+            connector.start();
+        }
+        
+        rankings = new PopularityRankings(this);
+    }
+    
+    // Loads the driver and sets up the gateway router; false if there is nothing to connect to
+    private boolean configure() {
         try {
-            // Establish a real connection to CockroachDB
-            connection = getRealConnection();
-            isConnected = (connection != null);
-            
-            if (isConnected) {
-                System.out.println("Connected to CockroachDB successfully.");
+            // Route every operation through the nearest healthy CockroachDB gateway
+            driverLoaded = loadDriver();
+            GatewayRouter newRouter = GatewayRouter.fromEnvironment();
+            slowQueryLog = SlowQueryLog.fromEnvironment(newRouter);
+            router = newRouter;
+        } catch (Exception e) {
+            EventLog.error("db.init_failed", "error", e.getClass().getSimpleName(), "message", e.getMessage());
+            return false;
+        }
+        
+        if (!driverLoaded || !router.hasGateways()) {
+            EventLog.warn("db.offline", "reason", !driverLoaded ? "driver not loaded" : "no gateway configured");
+            return false;
+        }
+        return true;
+    }
+    
+    private void connect() {
+        try {
+            if (canReachCluster()) {
+                EventLog.info("db.connected", "gateways", router.getGateways().size());
                 // Create table if it doesn't exist
                 //createTableIfNotExists(); //Removed create table since the table is expected to exist
+                runMigrations();
             } else {
-                System.out.println("Failed to connect to database. Running in offline mode.");
+                EventLog.warn("db.offline", "reason", "no gateway answered");
+                // The router reconnects by itself; the schema still has to be brought up to date then
+                Thread migrator = new Thread(() -> {
+                    if (awaitCluster()) {
+                        runMigrations();
+                    }
+                }, "schema-migrations");
+                migrator.setDaemon(true);
+                migrator.start();
             }
         } catch (Exception e) {
-            System.out.println("Error initializing database: " + e.getMessage());
-            System.out.println("Running in offline mode.");
+            EventLog.error("db.init_failed", "error", e.getClass().getSimpleName(), "message", e.getMessage());
+        }
+    }
+    
+    // Waits until a gateway is reachable, then replaces the snapshot with fresh data and saves it
+    private void revalidateSnapshot() {
+        if (awaitCluster()) {
+            refreshSnapshot();
+        }
+    }
+    
+    // Blocks until a gateway has answered since the last failure; false if closed or interrupted first.
+    // isConnected() alone isn't enough, it stays true through failures below the breaker threshold.
+    private boolean awaitCluster() {
+        while (!closed && !(isConnected() && router.isAnswering())) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return !closed;
+    }
+    
+    private boolean refreshSnapshot() {
+        DbResult<List<String>> regions = getAvailableRegions(defaultDeadline());
+        DbResult<List<Map<String, String>>> partitions = showPartitions(defaultDeadline());
+        DbResult<List<Movie>> movies = getMoviesPage(0, SNAPSHOT_MOVIES, defaultDeadline());
+        if (!regions.isOk() || !partitions.isOk() || !movies.isOk()) {
+            return false;
+        }
+        
+        snapshot = new CatalogSnapshot(System.currentTimeMillis(), regions.getValue(), partitions.getValue(), movies.getValue());
+        try {
+            snapshot.save(snapshotFile);
+            return true;
+        } catch (IOException e) {
+            EventLog.warn("snapshot.save_failed", "file", snapshotFile, "message", e.getMessage());
+            return false;
         }
     }
     
+    // Snapshot the data shown while offline comes from, null if there is none
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
     //Removed createTableIfNotExists()
     
-    public boolean addMovie(Movie movie) {
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot add movie.");
+    private boolean canReachCluster() {
+        try (GatewayRouter.Lease lease = router.acquire(null, defaultDeadline())) {
+            return lease.connection() != null;
+        } catch (SQLException e) {
+            EventLog.warn("db.connect_failed", "sqlstate", e.getSQLState(), "message", e.getMessage());
             return false;
         }
+    }
+    
+    // Brings the schema up to date (indexes etc.) on top of CREATE_DATABASE.sql
+    private void runMigrations() {
+        // Index backfills can take a while, so only connecting is bounded here
+        try (GatewayRouter.Lease lease = router.acquire(null, Deadline.none())) {
+            new MigrationRunner().migrate(lease.connection());
+        } catch (SQLException e) {
+            EventLog.error("db.migrations_failed", "sqlstate", e.getSQLState(), "message", e.getMessage());
+        }
+    }
+    
+    public boolean addMovie(Movie movie) {
+        return logIfFailed(addMovie(movie, defaultDeadline())).isOk();
+    }
+    
+    public DbResult<Movie> addMovie(Movie movie, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot add movie.");
+        }
         
         // Note: id and created_at are auto-generated
         String sql = "INSERT INTO " + TABLE_NAME + 
                      " (titulo, duracion, fecha_estreno, clasificacion, region) " +
-                     "VALUES (?, ?, ?, ?, ?) RETURNING id";
+                     "VALUES (?, ?, ?, ?, ?) RETURNING id, created_at";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, movie.getTitulo());
+        try (GatewayRouter.Lease lease = router.acquire(movie.getRegion(), deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, movieParams(movie))) {
+            PreparedStatement pstmt = binding.statement();
+            bindMovie(pstmt, movie);
             
-            // Handle nullable duration
-            if (movie.getDuracion() != null) {
-                // Convert Duration to PostgreSQL interval string
-                pstmt.setString(2, formatDurationForPostgres(movie.getDuracion()));
-            } else {
-                pstmt.setNull(2, Types.OTHER);
-            }
-            
-            // Handle nullable release date
-            if (movie.getFechaEstreno() != null) {
-                pstmt.setDate(3, Date.valueOf(movie.getFechaEstreno()));
-            } else {
-                pstmt.setNull(3, Types.DATE);
+            // Get the auto-generated ID and creation time, so the cached copy is complete
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    movie.setId((UUID) rs.getObject(1)); // Set the auto-generated UUID
+                    movie.setCreatedAt(rs.getTimestamp(2));
+                    movieCache.put(movie.getId(), MOVIE_MAPPER.copy(movie));
+                    return DbResult.ok(movie);
+                }
+                return DbResult.error("Error adding movie: no id returned");
             }
-            
-            // Handle nullable classification
-            if (movie.getClasificacion() != null && !movie.getClasificacion().isEmpty()) {
-                pstmt.setString(4, movie.getClasificacion());
-            } else {
-                pstmt.setNull(4, Types.VARCHAR);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error adding movie");
+        }
+    }
+    
+    // Inserts all movies in one JDBC batch and fills in their generated ids
+    public boolean addMovies(List<Movie> movies) {
+        return logIfFailed(addMovies(movies, defaultDeadline())).isOk();
+    }
+    
+    public DbResult<List<Movie>> addMovies(List<Movie> movies, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot add movies.");
+        }
+        if (movies.isEmpty()) {
+            return DbResult.ok(movies);
+        }
+        
+        String sql = "INSERT INTO " + TABLE_NAME + 
+                     " (titulo, duracion, fecha_estreno, clasificacion, region) " +
+                     "VALUES (?, ?, ?, ?, ?)";
+        
+        try (GatewayRouter.Lease lease = router.acquire(movies.get(0).getRegion(), deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql, new String[] {"id", "created_at"}), deadline, lease, sql, "batch of " + movies.size())) {
+            PreparedStatement pstmt = binding.statement();
+            for (Movie movie : movies) {
+                bindMovie(pstmt, movie);
+                pstmt.addBatch();
             }
             
-            pstmt.setString(5, movie.getRegion());
+            pstmt.executeBatch();
             
-            // Get the auto-generated ID
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    movie.setId((UUID) rs.getObject(1)); // Set the auto-generated UUID
-                    return true;
+            // Generated keys come back in batch order
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                int i = 0;
+                while (rs.next() && i < movies.size()) {
+                    Movie movie = movies.get(i++);
+                    movie.setId((UUID) rs.getObject(1));
+                    movie.setCreatedAt(rs.getTimestamp(2));
+                    movieCache.put(movie.getId(), MOVIE_MAPPER.copy(movie));
                 }
-                return false;
             }
+            return DbResult.ok(movies);
         } catch (SQLException e) {
-            System.out.println("Error adding movie: " + e.getMessage());
-            return false;
+            return DbResult.fromException(e, deadline, "Error adding movies");
         }
     }
     
-    private String formatDurationForPostgres(Duration duration) {
-        long hours = duration.toHours();
-        int minutes = duration.toMinutesPart();
-        int seconds = duration.toSecondsPart();
+    // Sets titulo, duracion, fecha_estreno, clasificacion and region as parameters 1-5
+    private void bindMovie(PreparedStatement pstmt, Movie movie) throws SQLException {
+        pstmt.setString(1, movie.getTitulo());
         
-        return String.format("%d hours %d minutes %d seconds", hours, minutes, seconds);
+        // Handle nullable duration
+        if (movie.getDuracion() != null) {
+            // Convert Duration to PostgreSQL interval string
+            pstmt.setString(2, RowMapper.formatInterval(movie.getDuracion()));
+        } else {
+            pstmt.setNull(2, Types.OTHER);
+        }
+        
+        // Handle nullable release date
+        if (movie.getFechaEstreno() != null) {
+            pstmt.setDate(3, Date.valueOf(movie.getFechaEstreno()));
+        } else {
+            pstmt.setNull(3, Types.DATE);
+        }
+        
+        // Handle nullable classification
+        if (movie.getClasificacion() != null && !movie.getClasificacion().isEmpty()) {
+            pstmt.setString(4, movie.getClasificacion());
+        } else {
+            pstmt.setNull(4, Types.VARCHAR);
+        }
+        
+        pstmt.setString(5, movie.getRegion());
     }
     
     public List<Movie> getAllMovies() {
-        List<Movie> movies = new ArrayList<>();
-        
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot retrieve movies.");
-            return movies;
+        return logIfFailed(getAllMovies(defaultDeadline())).orElse(new ArrayList<>());
+    }
+    
+    public DbResult<List<Movie>> getAllMovies(Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve movies.");
         }
         
+        List<Movie> movies = new ArrayList<>();
         String sql = "SELECT * FROM " + TABLE_NAME;
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<Statement> binding = track(lease.connection().createStatement(), deadline, lease, sql);
+             ResultSet rs = binding.statement().executeQuery(sql)) {
             
+            RowMapper.Bound<Movie> rows = MOVIE_MAPPER.bind(rs);
             while (rs.next()) {
-                Movie movie = extractMovieFromResultSet(rs);
-                movies.add(movie);
+                movies.add(rows.map());
             }
+            return DbResult.ok(movies);
         } catch (SQLException e) {
-            System.out.println("Error retrieving movies: " + e.getMessage());
+            return DbResult.fromException(e, deadline, "Error retrieving movies");
         }
-        
-        return movies;
     }
     
-    public Movie getMovieById(UUID id) {
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot retrieve movie.");
-            return null;
+    // Fetches a single page of movies ordered by id, so callers can page lazily through large tables
+    public List<Movie> getMoviesPage(int offset, int limit) {
+        if (!isConnected() && snapshot != null) {
+            // Serve the hot movies from the snapshot until the cluster answers
+            List<Movie> cached = snapshot.getMovies();
+            return new ArrayList<>(cached.subList(Math.min(offset, cached.size()), Math.min(offset + limit, cached.size())));
+        }
+        return logIfFailed(getMoviesPage(offset, limit, defaultDeadline())).orElse(new ArrayList<>());
+    }
+    
+    public DbResult<List<Movie>> getMoviesPage(int offset, int limit, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve movies.");
         }
         
-        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE id = ?";
+        List<Movie> movies = new ArrayList<>();
+        String sql = "SELECT * FROM " + TABLE_NAME + " ORDER BY id LIMIT ? OFFSET ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setObject(1, id);
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, limit, offset)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setInt(1, limit);
+            pstmt.setInt(2, offset);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return extractMovieFromResultSet(rs);
+                RowMapper.Bound<Movie> rows = MOVIE_MAPPER.bind(rs);
+                while (rs.next()) {
+                    movies.add(rows.map());
                 }
             }
+            return DbResult.ok(movies);
         } catch (SQLException e) {
-            System.out.println("Error retrieving movie: " + e.getMessage());
+            return DbResult.fromException(e, deadline, "Error retrieving movies");
         }
-        
-        return null;
     }
     
-    private Movie extractMovieFromResultSet(ResultSet rs) throws SQLException {
-        UUID id = (UUID) rs.getObject("id");
-        String titulo = rs.getString("titulo");
-        
-        // Handle interval type for duration
-        Duration duracion = null;
-        String durationStr = rs.getString("duracion");
-        if (durationStr != null) {
-            duracion = parseDurationFromPostgres(durationStr);
+    // Streams the whole table in columnar batches; the same MovieBatch is refilled and handed
+    // to the consumer for every block, so it must not be kept after the callback returns.
+    // Unlike the other convenience overloads, the whole-table scans run without a client deadline,
+    // since their time grows with the table; only the session statement_timeout bounds them.
+    public boolean scanMovies(int batchSize, Consumer<MovieBatch> consumer) {
+        return logIfFailed(scanMovies(batchSize, consumer, Deadline.none())).isOk();
+    }
+    
+    // Returns the number of rows scanned
+    public DbResult<Long> scanMovies(int batchSize, Consumer<MovieBatch> consumer, Deadline deadline) {
+        return scanMovies(false, batchSize, consumer, deadline);
+    }
+    
+    private DbResult<Long> scanMovies(boolean ordered, int batchSize, Consumer<MovieBatch> consumer, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot scan movies.");
         }
         
-        // Handle date
-        LocalDate fechaEstreno = null;
-        Date date = rs.getDate("fecha_estreno");
-        if (date != null) {
-            fechaEstreno = date.toLocalDate();
+        String sql = "SELECT " + MovieBatch.SELECT_COLUMNS + " FROM " + TABLE_NAME + (ordered ? " ORDER BY id" : "");
+        long rows = 0;
+        
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline)) {
+            Connection connection = lease.connection();
+            // The driver only streams with a fetch size when autocommit is off
+            connection.setAutoCommit(false);
+            try (Deadline.Binding<PreparedStatement> binding = deadline.bind(connection.prepareStatement(sql))) {
+                PreparedStatement pstmt = binding.statement();
+                pstmt.setFetchSize(batchSize);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    MovieBatch batch = new MovieBatch(batchSize);
+                    while (batch.fill(rs) > 0) {
+                        rows += batch.size();
+                        consumer.accept(batch);
+                    }
+                }
+                connection.commit();
+            } finally {
+                if (!connection.isClosed()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+            return DbResult.ok(rows);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error scanning movies");
         }
+    }
+    
+    // Movie count per region, aggregated over a columnar scan without building Movie objects.
+    // No client deadline, like scanMovies(int, Consumer)
+    public Map<String, Long> countMoviesByRegion() {
+        return logIfFailed(countMoviesByRegion(Deadline.none())).orElse(new LinkedHashMap<>());
+    }
+    
+    public DbResult<Map<String, Long>> countMoviesByRegion(Deadline deadline) {
+        MovieBatch.Dictionary[] dictionary = new MovieBatch.Dictionary[1];
+        long[][] counts = {new long[0]};
         
-        String clasificacion = rs.getString("clasificacion");
-        String region = rs.getString("region");
-        Timestamp createdAt = rs.getTimestamp("created_at");
+        DbResult<Long> scanned = scanMovies(1000, batch -> {
+            dictionary[0] = batch.getDictionary();
+            counts[0] = batch.countByRegion(counts[0]);
+        }, deadline);
         
-        return new Movie(id, titulo, duracion, fechaEstreno, clasificacion, region, createdAt);
+        if (!scanned.isOk()) {
+            return DbResult.fromResult(scanned);
+        }
+        if (dictionary[0] == null) {
+            return DbResult.ok(new LinkedHashMap<>());
+        }
+        return DbResult.ok(dictionary[0].decode(counts[0]));
     }
     
-    private Duration parseDurationFromPostgres(String pgInterval) {
-        // This is a simplified parser for PostgreSQL interval
-        // A more robust solution would handle all PostgreSQL interval formats
-        try {
-            // Example: "1 hour 30 mins" or "01:30:00"
-            if (pgInterval.contains(":")) {
-                // Parse time format HH:MM:SS
-                String[] parts = pgInterval.split(":");
-                int hours = Integer.parseInt(parts[0]);
-                int minutes = Integer.parseInt(parts[1]);
-                int seconds = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
-                
-                return Duration.ofHours(hours).plusMinutes(minutes).plusSeconds(seconds);
-            } else {
-                // Try to extract hours, minutes, seconds from text format
-                long hours = 0;
-                long minutes = 0;
-                long seconds = 0;
-                
-                if (pgInterval.contains("hour")) {
-                    String hourPart = pgInterval.split("hour")[0].trim();
-                    hours = Long.parseLong(hourPart.split(" ")[0]);
-                }
-                
-                if (pgInterval.contains("min")) {
-                    String minPart = pgInterval.split("min")[0].trim();
-                    if (minPart.contains("hour")) {
-                        minPart = minPart.split("hour")[1].trim();
-                    }
-                    minutes = Long.parseLong(minPart.split(" ")[0]);
+    // Scans every regional partition concurrently and merges the rows, ordered by id or in arrival order.
+    // Takes about as long as the slowest region instead of the sum of all of them.
+    // No client deadline, like scanMovies(int, Consumer)
+    public boolean scanMoviesByRegion(boolean ordered, PartitionedScan.RowConsumer consumer) {
+        return logIfFailed(scanMoviesByRegion(ordered, consumer, Deadline.none())).isOk();
+    }
+    
+    public DbResult<Void> scanMoviesByRegion(boolean ordered, PartitionedScan.RowConsumer consumer, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot scan movies.");
+        }
+        
+        DbResult<List<String>> regions = getAvailableRegions(deadline);
+        if (!regions.isOk()) {
+            return DbResult.fromResult(regions);
+        }
+        if (regions.getValue().isEmpty()) {
+            // Not partitioned by region (e.g. locality not set up): one statement still covers every row
+            DbResult<Long> scanned = scanMovies(ordered, 1000, batch -> {
+                for (int row = 0; row < batch.size(); row++) {
+                    consumer.accept(batch, row);
                 }
-                
-                if (pgInterval.contains("sec")) {
-                    String secPart = pgInterval.split("sec")[0].trim();
-                    if (secPart.contains("min")) {
-                        secPart = secPart.split("min")[1].trim();
-                    }
-                    seconds = Long.parseLong(secPart.split(" ")[0]);
+            }, deadline);
+            return scanned.isOk() ? DbResult.ok(null) : DbResult.fromResult(scanned);
+        }
+        
+        try {
+            new PartitionedScan(router, TABLE_NAME, regions.getValue(), ordered, 1000, deadline).run(consumer);
+            return DbResult.ok(null);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error scanning movies");
+        }
+    }
+    
+    public Movie getMovieById(UUID id) {
+        return logIfFailed(getMovieById(id, defaultDeadline())).orElse(null);
+    }
+    
+    public DbResult<Movie> getMovieById(UUID id, Deadline deadline) {
+        Movie cached = movieCache.get(id);
+        if (cached != null) {
+            return DbResult.ok(MOVIE_MAPPER.copy(cached));
+        }
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve movie.");
+        }
+        
+        String sql = "SELECT * FROM " + TABLE_NAME + " WHERE id = ?";
+        
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, id)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    Movie movie = MOVIE_MAPPER.bind(rs).map();
+                    movieCache.put(id, MOVIE_MAPPER.copy(movie));
+                    return DbResult.ok(movie);
                 }
-                
-                return Duration.ofHours(hours).plusMinutes(minutes).plusSeconds(seconds);
             }
-        } catch (Exception e) {
-            System.out.println("Error parsing duration: " + pgInterval);
-            return Duration.ZERO;
+            return DbResult.notFound("No movie found with ID: " + id);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error retrieving movie");
         }
     }
     
     public boolean updateMovie(Movie movie) {
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot update movie.");
-            return false;
+        return logIfFailed(updateMovie(movie, defaultDeadline())).isOk();
+    }
+    
+    public DbResult<Movie> updateMovie(Movie movie, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot update movie.");
         }
         
         String sql = "UPDATE " + TABLE_NAME + 
                      " SET titulo = ?, duracion = ?, fecha_estreno = ?, clasificacion = ?, region = ? " +
                      "WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, movie.getTitulo());
-            
-            // Handle nullable duration
-            if (movie.getDuracion() != null) {
-                pstmt.setString(2, formatDurationForPostgres(movie.getDuracion()));
-            } else {
-                pstmt.setNull(2, Types.OTHER);
-            }
-            
-            // Handle nullable release date
-            if (movie.getFechaEstreno() != null) {
-                pstmt.setDate(3, Date.valueOf(movie.getFechaEstreno()));
-            } else {
-                pstmt.setNull(3, Types.DATE);
-            }
-            
-            // Handle nullable classification
-            if (movie.getClasificacion() != null && !movie.getClasificacion().isEmpty()) {
-                pstmt.setString(4, movie.getClasificacion());
-            } else {
-                pstmt.setNull(4, Types.VARCHAR);
-            }
-            
-            pstmt.setString(5, movie.getRegion());
+        try (GatewayRouter.Lease lease = router.acquire(movie.getRegion(), deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, movieParams(movie, movie.getId()))) {
+            PreparedStatement pstmt = binding.statement();
+            bindMovie(pstmt, movie);
             pstmt.setObject(6, movie.getId());
             
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            // Dropped rather than replaced: created_at isn't known here
+            movieCache.invalidate(movie.getId());
+            return rowsAffected > 0 ? DbResult.ok(movie) : DbResult.notFound("No movie found with ID: " + movie.getId());
         } catch (SQLException e) {
-            System.out.println("Error updating movie: " + e.getMessage());
-            return false;
+            return DbResult.fromException(e, deadline, "Error updating movie");
         }
     }
     
     public boolean deleteMovie(UUID id) {
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot delete movie.");
-            return false;
+        return logIfFailed(deleteMovie(id, defaultDeadline())).isOk();
+    }
+    
+    public DbResult<UUID> deleteMovie(UUID id, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot delete movie.");
         }
         
         String sql = "DELETE FROM " + TABLE_NAME + " WHERE id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, id)) {
+            PreparedStatement pstmt = binding.statement();
             pstmt.setObject(1, id);
             
             int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            movieCache.invalidate(id);
+            return rowsAffected > 0 ? DbResult.ok(id) : DbResult.notFound("No movie found with ID: " + id);
         } catch (SQLException e) {
-            System.out.println("Error deleting movie: " + e.getMessage());
-            return false;
+            return DbResult.fromException(e, deadline, "Error deleting movie");
         }
     }
     
     public List<Map<String, String>> showPartitions() {
-        List<Map<String, String>> partitions = new ArrayList<>();
-        
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot show partitions.");
-            return partitions;
+        if (!isConnected() && snapshot != null) {
+            return snapshot.getPartitions();
+        }
+        return logIfFailed(showPartitions(defaultDeadline())).orElse(new ArrayList<>());
+    }
+    
+    public DbResult<List<Map<String, String>>> showPartitions(Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot show partitions.");
         }
         
+        List<Map<String, String>> partitions = new ArrayList<>();
         String sql = "SHOW PARTITIONS FROM TABLE " + TABLE_NAME;
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<Statement> binding = track(lease.connection().createStatement(), deadline, lease, sql);
+             ResultSet rs = binding.statement().executeQuery(sql)) {
             
             ResultSetMetaData metaData = rs.getMetaData();
             int columnCount = metaData.getColumnCount();
@@ -301,37 +575,47 @@ public class DatabaseManager {
             
             // Get data rows
             while (rs.next()) {
-                Map<String, String> row = new HashMap<>();
+                Map<String, String> row = new LinkedHashMap<>();
                 for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
                     String value = rs.getString(i);
-                    row.put(columnName, value);
+                    row.put(columnNames[i-1], value);
                 }
                 partitions.add(row);
             }
+            return DbResult.ok(partitions);
         } catch (SQLException e) {
-            System.out.println("Error showing partitions: " + e.getMessage());
+            return DbResult.fromException(e, deadline, "Error showing partitions");
         }
-        
-        return partitions;
     }
     
     public List<String> getAvailableRegions() {
-        List<String> regions = new ArrayList<>();
+        if (!isConnected() && snapshot != null && !snapshot.getRegions().isEmpty()) {
+            return snapshot.getRegions();
+        }
+        DbResult<List<String>> result = logIfFailed(getAvailableRegions(defaultDeadline()));
+        if (result.isOk()) {
+            return result.getValue();
+        }
         
-        if (!isConnected) {
-            System.out.println("Database connection not available. Cannot retrieve regions.");
-            // Add some default regions for offline mode
-            regions.add("aws-ap-south-1");
-            regions.add("aws-eu-central-1");
-            regions.add("aws-us-east-1");
-            return regions;
+        // Add some default regions for offline mode or if the query fails
+        List<String> regions = new ArrayList<>();
+        regions.add("aws-ap-south-1");
+        regions.add("aws-eu-central-1");
+        regions.add("aws-us-east-1");
+        return regions;
+    }
+    
+    public DbResult<List<String>> getAvailableRegions(Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve regions.");
         }
         
+        List<String> regions = new ArrayList<>();
         String sql = "SELECT DISTINCT partition_name FROM [SHOW PARTITIONS FROM TABLE " + TABLE_NAME + "]";
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<Statement> binding = track(lease.connection().createStatement(), deadline, lease, sql);
+             ResultSet rs = binding.statement().executeQuery(sql)) {
             
             while (rs.next()) {
                 String region = rs.getString(1);
@@ -339,57 +623,244 @@ public class DatabaseManager {
                     regions.add(region);
                 }
             }
+            return DbResult.ok(regions);
         } catch (SQLException e) {
-            System.out.println("Error retrieving regions: " + e.getMessage());
-            // Add some default regions if query fails
-            regions.add("aws-ap-south-1");
-            regions.add("aws-eu-central-1");
-            regions.add("aws-us-east-1");
+            return DbResult.fromException(e, deadline, "Error retrieving regions");
+        }
+    }
+    
+    public boolean addFavoriteMovies(UUID cinefiloId, List<UUID> peliculaIds) {
+        return logIfFailed(addFavoriteMovies(cinefiloId, peliculaIds, defaultDeadline())).isOk();
+    }
+    
+    // Stores all favorites in one statement; returns how many were new
+    public DbResult<Integer> addFavoriteMovies(UUID cinefiloId, List<UUID> peliculaIds, Deadline deadline) {
+        DbResult<List<UUID>> inserted = peliculasFavoritas.link(cinefiloId, peliculaIds, deadline);
+        if (!inserted.isOk()) {
+            return DbResult.fromResult(inserted);
+        }
+        rankings.onMoviesFavorited(inserted.getValue());
+        return DbResult.ok(inserted.getValue().size());
+    }
+    
+    public boolean addFavoriteBandas(UUID cinefiloId, List<UUID> bandaIds) {
+        return logIfFailed(addFavoriteBandas(cinefiloId, bandaIds, defaultDeadline())).isOk();
+    }
+    
+    public DbResult<Integer> addFavoriteBandas(UUID cinefiloId, List<UUID> bandaIds, Deadline deadline) {
+        DbResult<List<UUID>> inserted = bandasFavoritas.link(cinefiloId, bandaIds, deadline);
+        if (!inserted.isOk()) {
+            return DbResult.fromResult(inserted);
+        }
+        rankings.onBandasFavorited(inserted.getValue());
+        return DbResult.ok(inserted.getValue().size());
+    }
+    
+    // Top k most favorited movies of every region, ordered by region and rank
+    public DbResult<List<PopularityRankings.RankedItem>> getTopFavoriteMoviesByRegion(int k, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot compute rankings.");
         }
         
-        return regions;
+        String sql = "SELECT region, id, titulo, favoritos FROM (" +
+                     "SELECT p.region, p.id, p.titulo, count(*) AS favoritos, " +
+                     "row_number() OVER (PARTITION BY p.region ORDER BY count(*) DESC) AS pos " +
+                     "FROM cinefilo_pelicula_favorita f JOIN " + TABLE_NAME + " p ON p.id = f.pelicula_id " +
+                     "GROUP BY p.region, p.id, p.titulo) AS ranked " +
+                     "WHERE pos <= ? ORDER BY region, pos";
+        
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, k)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setInt(1, k);
+            
+            List<PopularityRankings.RankedItem> items = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new PopularityRankings.RankedItem((UUID) rs.getObject(2), rs.getString(3), rs.getString(1), rs.getLong(4)));
+                }
+            }
+            return DbResult.ok(items);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error computing movie rankings");
+        }
     }
     
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
+    public DbResult<List<PopularityRankings.RankedItem>> getTopFavoriteBandas(int k, Deadline deadline) {
+        if (!isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot compute rankings.");
+        }
+        
+        String sql = "SELECT b.id, b.titulo, count(*) AS favoritos " +
+                     "FROM cinefilo_banda_favorita f JOIN banda_sonora b ON b.id = f.banda_id " +
+                     "GROUP BY b.id, b.titulo ORDER BY favoritos DESC LIMIT ?";
+        
+        try (GatewayRouter.Lease lease = router.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = track(lease.connection().prepareStatement(sql), deadline, lease, sql, k)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setInt(1, k);
+            
+            List<PopularityRankings.RankedItem> items = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    items.add(new PopularityRankings.RankedItem((UUID) rs.getObject(1), rs.getString(2), null, rs.getLong(3)));
+                }
             }
+            return DbResult.ok(items);
         } catch (SQLException e) {
-            System.out.println("Error closing database connection: " + e.getMessage());
+            return DbResult.fromException(e, deadline, "Error computing soundtrack rankings");
         }
     }
     
+    // The refresher only starts once somebody reads the rankings, so batch runs never query for them.
+    // It keeps refreshing in the background, so it also catches up once an offline instance reconnects.
+    public PopularityRankings getRankings() {
+        rankings.start();
+        return rankings;
+    }
+    
+    // Lease on the nearest healthy gateway (or the one for homeRegion), shared with the DAOs
+    GatewayRouter.Lease acquire(String homeRegion, Deadline deadline) throws SQLException {
+        return router.acquire(homeRegion, deadline);
+    }
+    
+    // Binds the statement to the deadline and reports its latency to the slow query log when done
+    <S extends Statement> Deadline.Binding<S> track(S stmt, Deadline deadline, GatewayRouter.Lease lease,
+                                                    String sql, Object... params) throws SQLException {
+        String region = lease.gateway().getRegion();
+        return deadline.bind(stmt).onClose(elapsedNanos -> slowQueryLog.record(sql, params, elapsedNanos, region));
+    }
+    
+    private Object[] movieParams(Movie movie, Object... extra) {
+        Object[] params = new Object[5 + extra.length];
+        params[0] = movie.getTitulo();
+        params[1] = movie.getDuracion() != null ? RowMapper.formatInterval(movie.getDuracion()) : null;
+        params[2] = movie.getFechaEstreno() != null ? Date.valueOf(movie.getFechaEstreno()) : null;
+        params[3] = movie.getClasificacion();
+        params[4] = movie.getRegion();
+        System.arraycopy(extra, 0, params, 5, extra.length);
+        return params;
+    }
+    
+    public TableDao<Director> getDirectores() {
+        return directores;
+    }
+    
+    public TableDao<BandaSonora> getBandasSonoras() {
+        return bandasSonoras;
+    }
+    
+    public TableDao<Autor> getAutores() {
+        return autores;
+    }
+    
+    public TableDao<Interprete> getInterpretes() {
+        return interpretes;
+    }
+    
+    public TableDao<Cinefilo> getCinefilos() {
+        return cinefilos;
+    }
+    
+    public LinkDao getPeliculaDirector() {
+        return peliculaDirector;
+    }
+    
+    public LinkDao getBandaAutor() {
+        return bandaAutor;
+    }
+    
+    public LinkDao getBandaInterprete() {
+        return bandaInterprete;
+    }
+    
+    // Writes through DatabaseManager.addFavoriteMovies/addFavoriteBandas keep the rankings up to date
+    public LinkDao getPeliculasFavoritas() {
+        return peliculasFavoritas;
+    }
+    
+    public LinkDao getBandasFavoritas() {
+        return bandasFavoritas;
+    }
+    
+    public LruCache<UUID, Movie> getMovieCache() {
+        return movieCache;
+    }
+    
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+    
+    // Deadline for calls that don't pass their own
+    public Deadline defaultDeadline() {
+        return Deadline.after(defaultTimeout);
+    }
+    
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+    
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+    
+    // Records failures of the boolean/list style methods, which can't return the reason; not found is not an error there
+    private <T> DbResult<T> logIfFailed(DbResult<T> result) {
+        if (!result.isOk() && result.getStatus() != DbResult.Status.NOT_FOUND) {
+            EventLog.warn("db.operation_failed", "status", result.getStatus(), "message", result.getMessage());
+        }
+        return result;
+    }
+    
+    public void close() {
+        closed = true;
+        if (rankings != null) {
+            rankings.close();
+        }
+        if (slowQueryLog != null) {
+            slowQueryLog.close();
+        }
+        if (router != null) {
+            router.close();
+            EventLog.info("db.closed");
+        }
+    }
+    
+    // Whether a warm start is still trying to connect for the first time; until then isConnected()
+    // being false doesn't mean the cluster is unreachable
+    public boolean isConnecting() {
+        return connecting;
+    }
+    
+    // Live state: true while at least one gateway passes its health checks
     public boolean isConnected() {
-        return isConnected;
+        return driverLoaded && router != null && router.isAvailable();
     }
     
-    public static Connection getRealConnection() throws SQLException {
-        // Retrieve the JDBC URL from the environment variable
-        String jdbcUrl = System.getenv("JDBC_DATABASE_URL");
-
-        if (jdbcUrl == null || jdbcUrl.isEmpty()) {
-            System.out.println("Error: JDBC_DATABASE_URL environment variable is not set.");
-            return null;
+    public List<Gateway> getGateways() {
+        return router != null ? router.getGateways() : new ArrayList<>();
+    }
+    
+    // DB_OPERATION_TIMEOUT_MS overrides the default 10 second deadline per operation
+    private static long getTimeoutFromEnvironment() {
+        String value = System.getenv("DB_OPERATION_TIMEOUT_MS");
+        if (value != null && !value.isEmpty()) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                EventLog.warn("config.invalid", "name", "DB_OPERATION_TIMEOUT_MS", "value", value);
+            }
         }
-
-        // Load the PostgreSQL JDBC driver
+        return 10000;
+    }
+    
+    private static boolean loadDriver() {
         try {
             Class.forName("org.postgresql.Driver");
+            return true;
         } catch (ClassNotFoundException e) {
-            System.out.println("PostgreSQL JDBC Driver not found. Include it in your library path.");
-            e.printStackTrace();
-            return null;
-        }
-
-        // Establish the connection
-        try {
-            return DriverManager.getConnection(jdbcUrl);
-        } catch (SQLException e) {
-            System.out.println("Failed to connect to the database.");
-            e.printStackTrace();
-            throw e;
+            EventLog.error("db.driver_missing", "driver", "org.postgresql.Driver");
+            return false;
         }
     }
 }
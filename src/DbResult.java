@@ -0,0 +1,79 @@
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+// Outcome of a database operation, so callers can tell a timeout or an outage apart from a real error
+public class DbResult<T> {
+    public enum Status { OK, NOT_FOUND, TIMEOUT, CANCELLED, UNAVAILABLE, ERROR }
+
+    private final Status status;
+    private final T value;
+    private final String message;
+
+    private DbResult(Status status, T value, String message) {
+        this.status = status;
+        this.value = value;
+        this.message = message;
+    }
+
+    public static <T> DbResult<T> ok(T value) {
+        return new DbResult<>(Status.OK, value, null);
+    }
+
+    public static <T> DbResult<T> notFound(String message) {
+        return new DbResult<>(Status.NOT_FOUND, null, message);
+    }
+
+    public static <T> DbResult<T> unavailable(String message) {
+        return new DbResult<>(Status.UNAVAILABLE, null, message);
+    }
+
+    public static <T> DbResult<T> error(String message) {
+        return new DbResult<>(Status.ERROR, null, message);
+    }
+
+    // Carries a failure over to a result of another type
+    public static <T> DbResult<T> fromResult(DbResult<?> failed) {
+        return new DbResult<>(failed.status, null, failed.message);
+    }
+
+    // Classifies a failed statement; context is prefixed to the message, e.g. "Error adding movie"
+    public static <T> DbResult<T> fromException(SQLException e, Deadline deadline, String context) {
+        String state = e.getSQLState();
+
+        if (deadline.isCancelled()) {
+            return new DbResult<>(Status.CANCELLED, null, context + ": operation cancelled");
+        }
+        if (deadline.isExpired() || e instanceof SQLTimeoutException || "57014".equals(state)) {
+            return new DbResult<>(Status.TIMEOUT, null, context + ": deadline exceeded");
+        }
+        if (state != null && state.startsWith("08")) {
+            return new DbResult<>(Status.UNAVAILABLE, null, context + ": " + e.getMessage());
+        }
+        return new DbResult<>(Status.ERROR, null, context + ": " + e.getMessage());
+    }
+
+    public boolean isOk() {
+        return status == Status.OK;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public T getValue() {
+        return value;
+    }
+
+    public T orElse(T fallback) {
+        return status == Status.OK ? value : fallback;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return status == Status.OK ? "OK" : status + ": " + message;
+    }
+}
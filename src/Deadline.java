@@ -0,0 +1,148 @@
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+// Point in time by which a database operation must finish. Statements bound to a deadline get a
+// driver query timeout and are cancelled at the deadline; cancel() aborts them from another thread.
+// The binding owns its statement and closes it, so callers use the statement through the binding.
+public class Deadline {
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    private Deadline(long expiresAtNanos, boolean bounded) {
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    // No time limit, but can still be cancelled
+    public static Deadline none() {
+        return new Deadline(0, false);
+    }
+
+    public boolean isExpired() {
+        return bounded && System.nanoTime() - expiresAtNanos >= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Milliseconds left, Long.MAX_VALUE when unbounded
+    public long remainingMillis() {
+        if (!bounded) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    // Throws if the operation was cancelled or ran out of time; used between steps that can't be interrupted
+    public void check() throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Operation cancelled", "57014");
+        }
+        if (isExpired()) {
+            throw new SQLTimeoutException("Deadline exceeded", "57014");
+        }
+    }
+
+    // Cancels every statement currently running under this deadline
+    public void cancel() {
+        cancelled = true;
+        for (Statement statement : statements) {
+            cancelQuietly(statement);
+        }
+    }
+
+    // Applies the remaining time to the statement and arranges for it to be cancelled once the
+    // deadline passes; close the returned binding when the statement is done. The statement is
+    // closed right away if it can't be bound.
+    public <S extends Statement> Binding<S> bind(S statement) throws SQLException {
+        try {
+            check();
+
+            // Registered before the second check, so a concurrent cancel() either sees it or is seen here
+            statements.add(statement);
+            if (cancelled) {
+                throw new SQLException("Operation cancelled", "57014");
+            }
+            ScheduledFuture<?> timer = null;
+            if (bounded) {
+                long remaining = remainingMillis();
+                // Driver timeouts are in whole seconds, so the timer below enforces the exact deadline
+                statement.setQueryTimeout((int) Math.max(1, (remaining + 999) / 1000));
+                timer = TIMER.schedule(() -> cancelQuietly(statement), remaining, TimeUnit.MILLISECONDS);
+            }
+            return new Binding<>(statement, timer);
+        } catch (SQLException e) {
+            statements.remove(statement);
+            statement.close();
+            throw e;
+        }
+    }
+
+    private static void cancelQuietly(Statement statement) {
+        try {
+            statement.cancel();
+        } catch (SQLException e) {
+            // The statement already finished or the connection is gone
+        }
+    }
+
+    public class Binding<S extends Statement> implements AutoCloseable {
+        private final S statement;
+        private final ScheduledFuture<?> timer;
+        private final long startNanos = System.nanoTime();
+        private LongConsumer onClose;
+
+        private Binding(S statement, ScheduledFuture<?> timer) {
+            this.statement = statement;
+            this.timer = timer;
+        }
+
+        public S statement() {
+            return statement;
+        }
+
+        // Receives the time in nanoseconds between binding and closing
+        public Binding<S> onClose(LongConsumer listener) {
+            this.onClose = listener;
+            return this;
+        }
+
+        // Closes the statement too
+        @Override
+        public void close() throws SQLException {
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            statements.remove(statement);
+            try {
+                statement.close();
+            } finally {
+                if (onClose != null) {
+                    onClose.accept(System.nanoTime() - startNanos);
+                }
+            }
+        }
+    }
+}
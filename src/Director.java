@@ -0,0 +1,57 @@
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Row of the director table, mapped by RowMapper
+public class Director {
+    private UUID id;
+    private String nombre;
+    private LocalDate fechaNacimiento;
+    private String nacionalidad;
+
+    public Director() {
+    }
+
+    // Constructor without ID (for new rows)
+    public Director(String nombre, LocalDate fechaNacimiento, String nacionalidad) {
+        this.nombre = nombre;
+        this.fechaNacimiento = fechaNacimiento;
+        this.nacionalidad = nacionalidad;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public LocalDate getFechaNacimiento() {
+        return fechaNacimiento;
+    }
+
+    public void setFechaNacimiento(LocalDate fechaNacimiento) {
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    public String getNacionalidad() {
+        return nacionalidad;
+    }
+
+    public void setNacionalidad(String nacionalidad) {
+        this.nacionalidad = nacionalidad;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Director[id=%s, nombre=%s, fecha_nacimiento=%s, nacionalidad=%s]", id, nombre, fechaNacimiento, nacionalidad);
+    }
+}
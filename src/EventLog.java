@@ -0,0 +1,310 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// Structured diagnostics for the database layer, kept apart from the console UI. Callers claim a
+// slot in a preallocated ring buffer with a CAS (no locks, no per-event objects) and a single
+// background thread formats and writes the events. Output goes to diagnostics.log by default;
+// EVENT_LOG_FILE=stderr or another path changes that and EVENT_LOG_LEVEL sets the minimum level.
+public final class EventLog {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int CAPACITY = 1 << 12;
+    private static final int MASK = CAPACITY - 1;
+    private static final int MAX_FIELDS = 3;
+    // Repeated WARN/ERROR events with the same name are limited to this many per second
+    private static final int MAX_REPEATS_PER_SECOND = 5;
+
+    private static final Event[] slots = new Event[CAPACITY];
+    // Per-slot sequence numbers: equal to the claim position when free, position + 1 once published
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final AtomicLong tail = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Map<String, RateWindow> rateWindows = new ConcurrentHashMap<>();
+    private static final Level minLevel = parseLevel(System.getenv("EVENT_LOG_LEVEL"));
+    private static long head = 0;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Event();
+            sequences.set(i, i);
+        }
+        Thread writer = new Thread(EventLog::drainLoop, "event-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EventLog::drain, "event-log-flush"));
+    }
+
+    private EventLog() {
+    }
+
+    public static void debug(String event, Object... fields) {
+        log(Level.DEBUG, event, fields);
+    }
+
+    public static void info(String event) {
+        log(Level.INFO, event, null, null, null, null, null, null, 0);
+    }
+
+    public static void info(String event, String key, Object value) {
+        log(Level.INFO, event, key, value, null, null, null, null, 1);
+    }
+
+    public static void info(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.INFO, event, key1, value1, key2, value2, null, null, 2);
+    }
+
+    public static void warn(String event, String key, Object value) {
+        log(Level.WARN, event, key, value, null, null, null, null, 1);
+    }
+
+    public static void warn(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.WARN, event, key1, value1, key2, value2, null, null, 2);
+    }
+
+    public static void warn(String event, String key1, Object value1, String key2, Object value2, String key3, Object value3) {
+        log(Level.WARN, event, key1, value1, key2, value2, key3, value3, 3);
+    }
+
+    public static void error(String event, String key, Object value) {
+        log(Level.ERROR, event, key, value, null, null, null, null, 1);
+    }
+
+    public static void error(String event, String key1, Object value1, String key2, Object value2) {
+        log(Level.ERROR, event, key1, value1, key2, value2, null, null, 2);
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(minLevel) >= 0;
+    }
+
+    // Generic form for callers with unusual field counts; only the first three pairs are kept
+    public static void log(Level level, String event, Object... fields) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        int count = Math.min(MAX_FIELDS, fields.length / 2);
+        Object[] f = new Object[MAX_FIELDS * 2];
+        System.arraycopy(fields, 0, f, 0, count * 2);
+        log(level, event, (String) f[0], f[1], (String) f[2], f[3], (String) f[4], f[5], count);
+    }
+
+    private static void log(Level level, String event, String k1, Object v1, String k2, Object v2,
+                            String k3, Object v3, int fieldCount) {
+        if (!isEnabled(level)) {
+            return;
+        }
+
+        long suppressed = 0;
+        if (level.compareTo(Level.WARN) >= 0) {
+            suppressed = rateWindows.computeIfAbsent(event, name -> new RateWindow()).admit();
+            if (suppressed < 0) {
+                return;
+            }
+        }
+
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & MASK);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (diff < 0) {
+                // Full: never block the caller for diagnostics
+                dropped.incrementAndGet();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+
+        Event slot = slots[(int) (position & MASK)];
+        slot.timestamp = System.currentTimeMillis();
+        slot.level = level;
+        slot.name = event;
+        Thread current = Thread.currentThread();
+        // Virtual threads are usually unnamed
+        slot.thread = current.getName().isEmpty() ? "#" + current.threadId() : current.getName();
+        slot.keys[0] = k1;
+        slot.values[0] = v1;
+        slot.keys[1] = k2;
+        slot.values[1] = v2;
+        slot.keys[2] = k3;
+        slot.values[2] = v3;
+        slot.fieldCount = fieldCount;
+        slot.suppressed = suppressed;
+        sequences.set((int) (position & MASK), position + 1);
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            if (!drain()) {
+                LockSupport.parkNanos(5_000_000);
+            }
+        }
+    }
+
+    // Writes every published event; returns false if there was nothing to write
+    private static synchronized boolean drain() {
+        boolean wroteAny = false;
+        StringBuilder line = Output.line;
+
+        try {
+            while (true) {
+                int index = (int) (head & MASK);
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+                Event event = slots[index];
+                line.setLength(0);
+                event.format(line);
+                event.clear();
+                sequences.set(index, head + CAPACITY);
+                head++;
+
+                Output.writer.append(line);
+                wroteAny = true;
+            }
+
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                Output.writer.append(Instant.now().toString()).append(" WARN event_log.dropped count=")
+                        .append(String.valueOf(lost)).append('\n');
+                wroteAny = true;
+            }
+            if (wroteAny) {
+                Output.writer.flush();
+            }
+        } catch (IOException e) {
+            // Nowhere left to report this; keep draining so producers never stall
+        }
+        return wroteAny;
+    }
+
+    private static Level parseLevel(String value) {
+        if (value != null) {
+            try {
+                return Level.valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // Fall back to the default
+            }
+        }
+        return Level.INFO;
+    }
+
+    // Opened lazily on first drain so merely loading the class doesn't touch the file system
+    private static class Output {
+        static final StringBuilder line = new StringBuilder(256);
+        static final Writer writer = open();
+
+        private static Writer open() {
+            String target = System.getenv("EVENT_LOG_FILE");
+            if ("stderr".equalsIgnoreCase(target)) {
+                return new BufferedWriter(new OutputStreamWriter(System.err));
+            }
+            try {
+                return new BufferedWriter(new FileWriter(target != null && !target.isEmpty() ? target : "diagnostics.log", true));
+            } catch (IOException e) {
+                return new BufferedWriter(new OutputStreamWriter(System.err));
+            }
+        }
+    }
+
+    // Fixed one-second window per event name
+    private static class RateWindow {
+        private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong suppressed = new AtomicLong();
+
+        // Returns -1 to drop the event, otherwise how many were dropped since the last one let through
+        long admit() {
+            long now = System.currentTimeMillis();
+            long start = windowStart.get();
+            if (now - start >= 1000 && windowStart.compareAndSet(start, now)) {
+                count.set(0);
+            }
+            if (count.incrementAndGet() > MAX_REPEATS_PER_SECOND) {
+                suppressed.incrementAndGet();
+                return -1;
+            }
+            return suppressed.getAndSet(0);
+        }
+    }
+
+    private static class Event {
+        long timestamp;
+        Level level;
+        String name;
+        String thread;
+        final String[] keys = new String[MAX_FIELDS];
+        final Object[] values = new Object[MAX_FIELDS];
+        int fieldCount;
+        long suppressed;
+
+        void format(StringBuilder out) {
+            out.append(Instant.ofEpochMilli(timestamp)).append(' ').append(level).append(' ').append(name);
+            out.append(" thread=").append(thread);
+            for (int i = 0; i < fieldCount; i++) {
+                out.append(' ').append(keys[i]).append('=');
+                appendValue(out, values[i]);
+            }
+            if (suppressed > 0) {
+                out.append(" suppressed=").append(suppressed);
+            }
+            out.append('\n');
+        }
+
+        // Anything that could be read as a field separator, a key or a new line gets quoted, so one
+        // event always stays one parseable line
+        private static void appendValue(StringBuilder out, Object value) {
+            String text = String.valueOf(value);
+            if (!needsQuoting(text)) {
+                out.append(text);
+                return;
+            }
+            out.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\');
+                }
+                out.append(Character.isISOControl(c) ? ' ' : c);
+            }
+            out.append('"');
+        }
+
+        private static boolean needsQuoting(String text) {
+            if (text.isEmpty()) {
+                return true;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '=' || Character.isWhitespace(c) || Character.isISOControl(c)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void clear() {
+            name = null;
+            thread = null;
+            for (int i = 0; i < MAX_FIELDS; i++) {
+                keys[i] = null;
+                values[i] = null;
+            }
+        }
+    }
+}
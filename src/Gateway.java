@@ -0,0 +1,208 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+public class Gateway {
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final int IDLE_VALIDATION_TIMEOUT_SECONDS = 2;
+    // Upper bound for opening a connection, also when the caller's deadline is unbounded
+    private static final long MAX_CONNECT_MILLIS = 10000;
+    private static final long NETWORK_TIMEOUT_GRACE_MILLIS = 1000;
+    // Weight given to the newest RTT sample in the moving average
+    private static final double RTT_SMOOTHING = 0.3;
+    // Server-side backstop for statements that run without a client deadline
+    public static final long SESSION_STATEMENT_TIMEOUT_MILLIS = 300000;
+
+    private final String region;
+    private final String jdbcUrl;
+    private final ConcurrentLinkedDeque<Connection> idleConnections = new ConcurrentLinkedDeque<>();
+    private final CircuitBreaker breaker = new CircuitBreaker();
+    private volatile double rttMillis = -1;
+    private volatile double lastRttMillis = -1;
+    private volatile long lastCheckedAt = 0;
+    private volatile String lastError;
+
+    public Gateway(String region, String jdbcUrl) {
+        this.region = region;
+        this.jdbcUrl = jdbcUrl;
+    }
+
+    // Reuse an idle connection when one is available, otherwise open a new one. Connecting and every
+    // read on the connection until it is returned are bounded by the deadline.
+    public Connection borrowConnection(Deadline deadline) throws SQLException {
+        Connection connection = pollOrOpen(Math.min(deadline.remainingMillis(), MAX_CONNECT_MILLIS));
+        try {
+            // A little later than the deadline, so its statement cancel normally wins and keeps the connection usable
+            long remaining = deadline.remainingMillis();
+            setNetworkTimeout(connection, remaining == Long.MAX_VALUE ? 0 : Math.max(1, remaining) + NETWORK_TIMEOUT_GRACE_MILLIS);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    private Connection pollOrOpen(long connectTimeoutMillis) throws SQLException {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            if (connection.isClosed()) {
+                continue;
+            }
+            if (breaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                // This borrow is the breaker's trial, so its outcome has to be reported
+                if (!connection.isValid(IDLE_VALIDATION_TIMEOUT_SECONDS)) {
+                    connection.close();
+                    recordFailure("idle connection failed validation");
+                    throw new SQLException("Gateway " + region + " failed its trial request", "08006");
+                }
+                breaker.recordSuccess();
+            }
+            return connection;
+        }
+        try {
+            connection = openConnection(Math.max(1, connectTimeoutMillis));
+        } catch (SQLException e) {
+            recordFailure(e.getMessage());
+            throw e;
+        }
+        breaker.recordSuccess();
+        return connection;
+    }
+
+    public void returnConnection(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                // The driver closes the connection on I/O failures, so the gateway is suspect
+                recordFailure("connection lost");
+                return;
+            }
+            if (!isHealthy() || idleConnections.size() >= MAX_IDLE_CONNECTIONS) {
+                connection.close();
+                return;
+            }
+            setNetworkTimeout(connection, 0);
+            idleConnections.offerFirst(connection);
+        } catch (SQLException e) {
+            recordFailure(e.getMessage());
+        }
+    }
+
+    public Connection openConnection() throws SQLException {
+        return openConnection(0);
+    }
+
+    // Bounds connecting, logging in and the session setup by timeoutMillis (0 = driver defaults).
+    // The socket timeout is only applied during setup, callers set their own afterwards.
+    public Connection openConnection(long timeoutMillis) throws SQLException {
+        Properties properties = new Properties();
+        if (timeoutMillis > 0) {
+            String seconds = String.valueOf(toTimeoutSeconds(timeoutMillis));
+            properties.setProperty("connectTimeout", seconds);
+            properties.setProperty("loginTimeout", seconds);
+        }
+        Connection connection = DriverManager.getConnection(jdbcUrl, properties);
+        try (Statement stmt = connection.createStatement()) {
+            setNetworkTimeout(connection, timeoutMillis);
+            stmt.execute("SET statement_timeout = " + SESSION_STATEMENT_TIMEOUT_MILLIS);
+            setNetworkTimeout(connection, 0);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    // Socket read timeout for everything sent on the connection from now on; 0 turns it off
+    public static void setNetworkTimeout(Connection connection, long timeoutMillis) throws SQLException {
+        // The driver only needs a non-null executor
+        connection.setNetworkTimeout(Runnable::run, (int) Math.min(Integer.MAX_VALUE, Math.max(0, timeoutMillis)));
+    }
+
+    // Driver connect/login timeouts are whole seconds; rounds up so a short remainder isn't 0 (= none)
+    public static int toTimeoutSeconds(long timeoutMillis) {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, (timeoutMillis + 999) / 1000));
+    }
+
+    public void recordRtt(double sampleMillis) {
+        rttMillis = rttMillis < 0 ? sampleMillis : rttMillis + RTT_SMOOTHING * (sampleMillis - rttMillis);
+        lastRttMillis = sampleMillis;
+        lastCheckedAt = System.currentTimeMillis();
+        breaker.recordSuccess();
+    }
+
+    public void recordFailure(String error) {
+        lastError = error;
+        lastCheckedAt = System.currentTimeMillis();
+        breaker.recordFailure();
+        if (breaker.getState() == CircuitBreaker.State.OPEN) {
+            EventLog.warn("gateway.circuit_open", "region", region, "failures", breaker.getConsecutiveFailures(), "error", error);
+            closeIdleConnections();
+        }
+    }
+
+    // Whether a request or probe may be sent now; consumes the single trial while half-open
+    public boolean tryAcquirePermit() {
+        return breaker.allowRequest();
+    }
+
+    public void closeIdleConnections() {
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Ignore, the connection is being discarded anyway
+            }
+        }
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    // Requests may go to this gateway: its circuit isn't open. Isolated failures below the breaker's
+    // threshold only move it down the candidate list.
+    public boolean isHealthy() {
+        return breaker.getState() != CircuitBreaker.State.OPEN;
+    }
+
+    // Closed breaker and the last check succeeded
+    public boolean isAnswering() {
+        return breaker.getState() == CircuitBreaker.State.CLOSED && breaker.getConsecutiveFailures() == 0;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public double getLastRttMillis() {
+        return lastRttMillis;
+    }
+
+    // Wall clock time of the last probe or failure, 0 if never checked
+    public long getLastCheckedAt() {
+        return lastCheckedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    // Smoothed round trip time in milliseconds, or -1 if never probed
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s, rtt: %s)", region != null ? region : "default",
+                breaker.getState(), rttMillis < 0 ? "N/A" : String.format("%.1f ms", rttMillis));
+    }
+}
@@ -0,0 +1,228 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class GatewayRouter {
+    private static final long PROBE_TICK_MILLIS = 1000;
+    private static final long HEALTHY_PROBE_INTERVAL_MILLIS = 5000;
+    // A gateway that accepts connections but stops answering must not stall the single prober thread
+    private static final long PROBE_TIMEOUT_MILLIS = 3000;
+
+    private final List<Gateway> gateways;
+    private final Map<Gateway, Connection> probeConnections = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService prober;
+
+    public GatewayRouter(List<Gateway> gateways) {
+        this.gateways = new ArrayList<>(gateways);
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gateway-prober");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!this.gateways.isEmpty()) {
+            // The first probe also runs in the background so construction never blocks on the network
+            prober.scheduleWithFixedDelay(this::probeAll, 0, PROBE_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Builds the gateway list from JDBC_DATABASE_URLS ("region=url;region=url"),
+    // falling back to the single JDBC_DATABASE_URL gateway without a region tag
+    public static GatewayRouter fromEnvironment() {
+        List<Gateway> gateways = new ArrayList<>();
+        String urls = System.getenv("JDBC_DATABASE_URLS");
+
+        if (urls != null && !urls.isBlank()) {
+            for (String entry : urls.split(";")) {
+                entry = entry.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int separator = entry.indexOf('=');
+                if (separator > 0 && !entry.startsWith("jdbc:")) {
+                    gateways.add(new Gateway(entry.substring(0, separator).trim(), entry.substring(separator + 1).trim()));
+                } else {
+                    gateways.add(new Gateway(null, entry));
+                }
+            }
+        } else {
+            String jdbcUrl = System.getenv("JDBC_DATABASE_URL");
+            if (jdbcUrl != null && !jdbcUrl.isEmpty()) {
+                gateways.add(new Gateway(null, jdbcUrl));
+            }
+        }
+
+        if (gateways.isEmpty()) {
+            EventLog.error("config.missing", "name", "JDBC_DATABASE_URLS");
+        }
+
+        return new GatewayRouter(gateways);
+    }
+
+    // Borrows a connection from the gateway in the row's home region when known,
+    // otherwise from the nearest healthy gateway, failing over down the list.
+    // Gateways with an open circuit are skipped, so a dead cluster fails fast. Connecting to each
+    // candidate is bounded by the time left on the deadline, which is checked before every attempt.
+    public Lease acquire(String homeRegion, Deadline deadline) throws SQLException {
+        SQLException lastError = null;
+
+        for (Gateway gateway : candidates(homeRegion)) {
+            deadline.check();
+            if (!gateway.tryAcquirePermit()) {
+                continue;
+            }
+            try {
+                return new Lease(gateway, gateway.borrowConnection(deadline));
+            } catch (SQLException e) {
+                lastError = e;
+            }
+        }
+
+        if (lastError != null) {
+            throw lastError;
+        }
+        if (gateways.isEmpty()) {
+            throw new SQLException("No database gateway configured", "08001");
+        }
+        throw new SQLException("All database gateways are unavailable (circuit open)", "08006");
+    }
+
+    private List<Gateway> candidates(String homeRegion) {
+        List<Gateway> healthy = new ArrayList<>();
+        List<Gateway> down = new ArrayList<>();
+        for (Gateway gateway : gateways) {
+            (gateway.isHealthy() ? healthy : down).add(gateway);
+        }
+
+        // Gateways that failed recently go after the ones that didn't, then the nearest first
+        healthy.sort(Comparator.comparingInt((Gateway gateway) -> gateway.getBreaker().getConsecutiveFailures())
+                .thenComparingDouble(gateway -> gateway.getRttMillis() < 0 ? Double.MAX_VALUE : gateway.getRttMillis()));
+
+        if (homeRegion != null) {
+            for (int i = 0; i < healthy.size(); i++) {
+                if (homeRegion.equals(healthy.get(i).getRegion())) {
+                    healthy.add(0, healthy.remove(i));
+                    break;
+                }
+            }
+        }
+
+        // Degraded gateways come last; their circuit breaker decides whether they are tried at all
+        healthy.addAll(down);
+        return healthy;
+    }
+
+    // Gateways that answered their last check are probed every few seconds; the others whenever their breaker allows a retry
+    private void probeAll() {
+        long now = System.currentTimeMillis();
+        for (Gateway gateway : gateways) {
+            if (gateway.isAnswering() && now - gateway.getLastCheckedAt() < HEALTHY_PROBE_INTERVAL_MILLIS) {
+                continue;
+            }
+            if (gateway.tryAcquirePermit()) {
+                probe(gateway);
+            }
+        }
+    }
+
+    private void probe(Gateway gateway) {
+        try {
+            Connection connection = probeConnections.get(gateway);
+            if (connection == null || connection.isClosed()) {
+                connection = gateway.openConnection(PROBE_TIMEOUT_MILLIS);
+                // Probe connections only ever run SELECT 1, so the socket timeout can stay on
+                Gateway.setNetworkTimeout(connection, PROBE_TIMEOUT_MILLIS);
+                probeConnections.put(gateway, connection);
+            }
+
+            long start = System.nanoTime();
+            try (Statement stmt = connection.createStatement()) {
+                stmt.setQueryTimeout(Gateway.toTimeoutSeconds(PROBE_TIMEOUT_MILLIS));
+                stmt.execute("SELECT 1");
+            }
+            gateway.recordRtt((System.nanoTime() - start) / 1_000_000.0);
+        } catch (SQLException e) {
+            gateway.recordFailure(e.getMessage());
+            Connection broken = probeConnections.remove(gateway);
+            if (broken != null) {
+                try {
+                    broken.close();
+                } catch (SQLException ignored) {
+                    // Already broken
+                }
+            }
+        }
+    }
+
+    public boolean isAvailable() {
+        for (Gateway gateway : gateways) {
+            if (gateway.isHealthy()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Stricter than isAvailable(): some gateway answered its last check
+    public boolean isAnswering() {
+        for (Gateway gateway : gateways) {
+            if (gateway.isAnswering()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasGateways() {
+        return !gateways.isEmpty();
+    }
+
+    public List<Gateway> getGateways() {
+        return new ArrayList<>(gateways);
+    }
+
+    public void close() {
+        prober.shutdownNow();
+        for (Connection connection : probeConnections.values()) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // Shutting down
+            }
+        }
+        probeConnections.clear();
+        for (Gateway gateway : gateways) {
+            gateway.closeIdleConnections();
+        }
+    }
+
+    public static class Lease implements AutoCloseable {
+        private final Gateway gateway;
+        private final Connection connection;
+
+        private Lease(Gateway gateway, Connection connection) {
+            this.gateway = gateway;
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        public Gateway gateway() {
+            return gateway;
+        }
+
+        @Override
+        public void close() {
+            gateway.returnConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Row of the interprete table, mapped by RowMapper
+public class Interprete {
+    private UUID id;
+    private String nombre;
+    private LocalDate fechaNacimiento;
+
+    public Interprete() {
+    }
+
+    // Constructor without ID (for new rows)
+    public Interprete(String nombre, LocalDate fechaNacimiento) {
+        this.nombre = nombre;
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public LocalDate getFechaNacimiento() {
+        return fechaNacimiento;
+    }
+
+    public void setFechaNacimiento(LocalDate fechaNacimiento) {
+        this.fechaNacimiento = fechaNacimiento;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Interprete[id=%s, nombre=%s, fecha_nacimiento=%s]", id, nombre, fechaNacimiento);
+    }
+}
@@ -0,0 +1,140 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Typed access to a many-to-many table whose primary key is (leftColumn, rightColumn), such as
+// pelicula_director. Links are written in one statement per call, and the ids linked to a given id
+// are cached in both directions; writes drop exactly the cached lists they change.
+public class LinkDao {
+    private static final int CACHE_SIZE = 1000;
+    private static final long CACHE_TTL_MILLIS = 30000;
+
+    private final DatabaseManager dbManager;
+    private final String table;
+    private final String leftColumn;
+    private final String rightColumn;
+    private final LruCache<UUID, List<UUID>> rightsByLeft = new LruCache<>(CACHE_SIZE, CACHE_TTL_MILLIS);
+    private final LruCache<UUID, List<UUID>> leftsByRight = new LruCache<>(CACHE_SIZE, CACHE_TTL_MILLIS);
+
+    public LinkDao(DatabaseManager dbManager, String table, String leftColumn, String rightColumn) {
+        this.dbManager = dbManager;
+        this.table = table;
+        this.leftColumn = leftColumn;
+        this.rightColumn = rightColumn;
+    }
+
+    // Links all rightIds to leftId in one statement; returns the ids that were not linked already
+    public DbResult<List<UUID>> link(UUID leftId, List<UUID> rightIds, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot update " + table + ".");
+        }
+
+        List<UUID> inserted = new ArrayList<>();
+        if (rightIds.isEmpty()) {
+            return DbResult.ok(inserted);
+        }
+
+        // One statement for all ids. RETURNING reports exactly the new links; batch update counts
+        // can't, since with reWriteBatchedInserts the driver returns SUCCESS_NO_INFO for every row.
+        String sql = "INSERT INTO " + table + " (" + leftColumn + ", " + rightColumn + ") " +
+                     "SELECT ?, unnest(?::UUID[]) ON CONFLICT DO NOTHING RETURNING " + rightColumn;
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql),
+                     deadline, lease, sql, leftId, "array of " + rightIds.size())) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, leftId);
+            pstmt.setArray(2, lease.connection().createArrayOf("uuid", rightIds.toArray()));
+
+            Set<UUID> returned = new HashSet<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    returned.add((UUID) rs.getObject(1));
+                }
+            }
+            // Reported in input order, each id once
+            for (UUID rightId : rightIds) {
+                if (returned.remove(rightId)) {
+                    inserted.add(rightId);
+                }
+            }
+            invalidate(leftId, inserted);
+            return DbResult.ok(inserted);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error updating " + table);
+        }
+    }
+
+    public DbResult<UUID> unlink(UUID leftId, UUID rightId, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot update " + table + ".");
+        }
+
+        String sql = "DELETE FROM " + table + " WHERE " + leftColumn + " = ? AND " + rightColumn + " = ?";
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql), deadline, lease, sql, leftId, rightId)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, leftId);
+            pstmt.setObject(2, rightId);
+
+            int rowsAffected = pstmt.executeUpdate();
+            invalidate(leftId, List.of(rightId));
+            return rowsAffected > 0 ? DbResult.ok(rightId) : DbResult.notFound("No such link in " + table);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error updating " + table);
+        }
+    }
+
+    // Ids in rightColumn linked to leftId
+    public DbResult<List<UUID>> findRights(UUID leftId, Deadline deadline) {
+        return find(rightsByLeft, rightColumn, leftColumn, leftId, deadline);
+    }
+
+    // Ids in leftColumn linked to rightId
+    public DbResult<List<UUID>> findLefts(UUID rightId, Deadline deadline) {
+        return find(leftsByRight, leftColumn, rightColumn, rightId, deadline);
+    }
+
+    private DbResult<List<UUID>> find(LruCache<UUID, List<UUID>> cache, String selectColumn, String whereColumn,
+                                      UUID id, Deadline deadline) {
+        List<UUID> cached = cache.get(id);
+        if (cached != null) {
+            return DbResult.ok(cached);
+        }
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve " + table + ".");
+        }
+
+        String sql = "SELECT " + selectColumn + " FROM " + table + " WHERE " + whereColumn + " = ?";
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql), deadline, lease, sql, id)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, id);
+
+            List<UUID> ids = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add((UUID) rs.getObject(1));
+                }
+            }
+            // Cached lists are shared, so they are handed out read-only
+            List<UUID> result = Collections.unmodifiableList(ids);
+            cache.put(id, result);
+            return DbResult.ok(result);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error retrieving " + table);
+        }
+    }
+
+    private void invalidate(UUID leftId, List<UUID> rightIds) {
+        rightsByLeft.invalidate(leftId);
+        for (UUID rightId : rightIds) {
+            leftsByRight.invalidate(rightId);
+        }
+    }
+}
@@ -1,10 +1,102 @@
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 
 public class Main {
     public static void main(String[] args) {
-        DatabaseManager dbManager = new DatabaseManager();
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args);
+            return;
+        }
+        
+        // Start from the local snapshot and connect in the background
+        DatabaseManager dbManager = new DatabaseManager(getSnapshotFile());
         ConsoleUI ui = new ConsoleUI(dbManager);
         ui.start();
     }
+    
+    private static File getSnapshotFile() {
+        String path = System.getenv("CATALOG_SNAPSHOT_FILE");
+        return new File(path != null && !path.isEmpty() ? path : "catalog.snapshot");
+    }
+    
+    // java Main --server [--port N]; serves until the process is stopped
+    private static void runServer(String[] args) {
+        int port = 8080;
+        try {
+            String value = System.getenv("API_PORT");
+            if (value != null && !value.isEmpty()) {
+                port = Integer.parseInt(value.trim());
+            }
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--port") && i + 1 < args.length) {
+                    port = Integer.parseInt(args[++i]);
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            System.exit(2);
+        }
+        
+        DatabaseManager dbManager = new DatabaseManager(getSnapshotFile());
+        ApiServer server;
+        try {
+            server = new ApiServer(dbManager, port);
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + port + ": " + e.getMessage());
+            dbManager.close();
+            System.exit(1);
+            return;
+        }
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            dbManager.close();
+        }, "api-shutdown"));
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getPort());
+    }
+    
+    // java Main --batch [file|-] [--concurrency N] [--batch-size N]
+    private static void runBatch(String[] args) {
+        String file = "-";
+        int concurrency = 4;
+        int batchSize = 50;
+        
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--concurrency") && i + 1 < args.length) {
+                    concurrency = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--batch-size") && i + 1 < args.length) {
+                    batchSize = Integer.parseInt(args[++i]);
+                } else {
+                    file = args[i];
+                }
+            }
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number: " + e.getMessage());
+            System.exit(2);
+        }
+        
+        DatabaseManager dbManager = new DatabaseManager();
+        int failures;
+        try (BufferedReader reader = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : new BufferedReader(new FileReader(file))) {
+            failures = new BatchRunner(dbManager, System.out, concurrency, batchSize).run(reader);
+        } catch (IOException e) {
+            System.err.println("Error reading commands: " + e.getMessage());
+            failures = 1;
+        } finally {
+            dbManager.close();
+        }
+        
+        System.exit(failures == 0 ? 0 : 1);
+    }
 }
-
@@ -0,0 +1,52 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+public class Migration {
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+    private final String checksum;
+
+    public Migration(int version, String description, String... statements) {
+        this.version = version;
+        this.description = description;
+        this.statements = List.of(statements);
+        this.checksum = computeChecksum(this.statements);
+    }
+
+    // SHA-256 of the statements, so an already applied step that was edited afterwards is detected
+    private static String computeChecksum(List<String> statements) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String statement : statements) {
+                digest.update(statement.trim().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ';');
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+}
@@ -0,0 +1,114 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MigrationRunner {
+    private static final String HISTORY_TABLE = "schema_migrations";
+
+    // Append new steps at the end; never edit a step that has already been applied
+    private static final List<Migration> MIGRATIONS = List.of(
+        // Hash-sharded so inserts with increasing timestamps spread over ranges instead of hitting one
+        new Migration(1, "Hash-sharded index on pelicula.created_at",
+            "CREATE INDEX IF NOT EXISTS pelicula_created_at_idx ON pelicula (created_at) USING HASH"),
+        // pelicula is REGIONAL BY ROW, so this index is partitioned by region and title lookups stay local
+        new Migration(2, "Regional index on pelicula.titulo",
+            "CREATE INDEX IF NOT EXISTS pelicula_titulo_idx ON pelicula (titulo) " +
+            "STORING (duracion, fecha_estreno, clasificacion)"),
+        new Migration(3, "Index on pelicula.fecha_estreno",
+            "CREATE INDEX IF NOT EXISTS pelicula_fecha_estreno_idx ON pelicula (fecha_estreno)"),
+        // The link tables' primary keys start with the left column; these serve LinkDao lookups from
+        // the right side and the joins on it in the popularity rankings
+        new Migration(4, "Indexes on the second column of the link tables",
+            "CREATE INDEX IF NOT EXISTS pelicula_director_director_id_idx ON pelicula_director (director_id)",
+            "CREATE INDEX IF NOT EXISTS banda_autor_autor_id_idx ON banda_autor (autor_id)",
+            "CREATE INDEX IF NOT EXISTS banda_interprete_interprete_id_idx ON banda_interprete (interprete_id)",
+            "CREATE INDEX IF NOT EXISTS cinefilo_pelicula_favorita_pelicula_id_idx ON cinefilo_pelicula_favorita (pelicula_id)",
+            "CREATE INDEX IF NOT EXISTS cinefilo_banda_favorita_banda_id_idx ON cinefilo_banda_favorita (banda_id)")
+    );
+
+    private final List<Migration> migrations;
+
+    public MigrationRunner() {
+        this(MIGRATIONS);
+    }
+
+    public MigrationRunner(List<Migration> migrations) {
+        this.migrations = migrations;
+    }
+
+    // Applies every pending migration in version order and returns how many were applied.
+    // Stops with an SQLException if an applied migration no longer matches its checksum.
+    public int migrate(Connection connection) throws SQLException {
+        createHistoryTable(connection);
+        Map<Integer, String> applied = loadAppliedChecksums(connection);
+        int count = 0;
+
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.getVersion());
+
+            if (checksum != null) {
+                if (!checksum.equals(migration.getChecksum())) {
+                    throw new SQLException("Checksum mismatch for schema migration " + migration.getVersion()
+                            + " (" + migration.getDescription() + "): it was changed after being applied");
+                }
+                continue;
+            }
+
+            // Schema changes run outside explicit transactions, so every statement must be idempotent.
+            // Index backfills can take a while, so the session statement timeout is lifted meanwhile.
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET statement_timeout = 0");
+                try {
+                    for (String sql : migration.getStatements()) {
+                        stmt.execute(sql);
+                    }
+                } finally {
+                    stmt.execute("SET statement_timeout = " + Gateway.SESSION_STATEMENT_TIMEOUT_MILLIS);
+                }
+            }
+            recordMigration(connection, migration);
+            EventLog.info("db.migration_applied", "version", migration.getVersion(), "description", migration.getDescription());
+            count++;
+        }
+
+        return count;
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " (" +
+                         "version INT PRIMARY KEY, " +
+                         "description STRING NOT NULL, " +
+                         "checksum STRING NOT NULL, " +
+                         "applied_at TIMESTAMP DEFAULT now())");
+        }
+    }
+
+    private Map<Integer, String> loadAppliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private void recordMigration(Connection connection, Migration migration) throws SQLException {
+        // Another instance may have applied the same step concurrently
+        String sql = "INSERT INTO " + HISTORY_TABLE + " (version, description, checksum) VALUES (?, ?, ?) " +
+                     "ON CONFLICT (version) DO NOTHING";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setString(3, migration.getChecksum());
+            pstmt.executeUpdate();
+        }
+    }
+}
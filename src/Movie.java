@@ -13,6 +13,10 @@ public class Movie {
     private String region;
     private java.sql.Timestamp createdAt;
     
+    // Used by RowMapper, which fills the fields through the setters
+    public Movie() {
+    }
+    
     // Constructor with all fields (for existing movies)
     public Movie(UUID id, String titulo, Duration duracion, LocalDate fechaEstreno, 
                 String clasificacion, String region, java.sql.Timestamp createdAt) {
@@ -0,0 +1,224 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Column-oriented block of pelicula rows for bulk reads. Values are kept in primitive arrays and
+// region/clasificacion as ordinals into a dictionary shared by every batch of the same scan.
+public class MovieBatch {
+    // Columns in the order fill() expects; conversions happen in the database so rows arrive as numbers
+    public static final String SELECT_COLUMNS =
+        "id, titulo, EXTRACT(EPOCH FROM duracion)::INT8, (fecha_estreno - '1970-01-01'::DATE)::INT8, " +
+        "clasificacion, region, (EXTRACT(EPOCH FROM created_at) * 1000000)::INT8";
+
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final short NULL_ORDINAL = -1;
+
+    private final long[] idMostBits;
+    private final long[] idLeastBits;
+    private final String[] titulos;
+    private final int[] duracionSeconds;
+    private final int[] fechaEstrenoEpochDays;
+    private final short[] clasificacionOrdinals;
+    private final short[] regionOrdinals;
+    private final long[] createdAtMicros;
+    private final Dictionary dictionary;
+    private int size;
+
+    public MovieBatch(int capacity) {
+        this(capacity, new Dictionary());
+    }
+
+    public MovieBatch(int capacity, Dictionary dictionary) {
+        this.idMostBits = new long[capacity];
+        this.idLeastBits = new long[capacity];
+        this.titulos = new String[capacity];
+        this.duracionSeconds = new int[capacity];
+        this.fechaEstrenoEpochDays = new int[capacity];
+        this.clasificacionOrdinals = new short[capacity];
+        this.regionOrdinals = new short[capacity];
+        this.createdAtMicros = new long[capacity];
+        this.dictionary = dictionary;
+    }
+
+    // Reads rows selected with SELECT_COLUMNS until the batch is full or the result set is exhausted.
+    // Returns the number of rows read; 0 means there was nothing left.
+    public int fill(ResultSet rs) throws SQLException {
+        clear();
+        while (size < capacity() && rs.next()) {
+            int row = size;
+
+            UUID id = (UUID) rs.getObject(1);
+            idMostBits[row] = id.getMostSignificantBits();
+            idLeastBits[row] = id.getLeastSignificantBits();
+            titulos[row] = rs.getString(2);
+
+            long seconds = rs.getLong(3);
+            duracionSeconds[row] = rs.wasNull() ? NULL_INT : (int) seconds;
+
+            long epochDay = rs.getLong(4);
+            fechaEstrenoEpochDays[row] = rs.wasNull() ? NULL_INT : (int) epochDay;
+
+            clasificacionOrdinals[row] = dictionary.ordinalOf(rs.getString(5));
+            regionOrdinals[row] = dictionary.ordinalOf(rs.getString(6));
+
+            long micros = rs.getLong(7);
+            createdAtMicros[row] = rs.wasNull() ? NULL_LONG : micros;
+
+            size++;
+        }
+        return size;
+    }
+
+    public void clear() {
+        // Drop title references so a reused batch doesn't keep old strings alive
+        for (int i = 0; i < size; i++) {
+            titulos[i] = null;
+        }
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return titulos.length;
+    }
+
+    public UUID getId(int row) {
+        return new UUID(idMostBits[row], idLeastBits[row]);
+    }
+
+    public long getIdMostBits(int row) {
+        return idMostBits[row];
+    }
+
+    public long getIdLeastBits(int row) {
+        return idLeastBits[row];
+    }
+
+    public String getTitulo(int row) {
+        return titulos[row];
+    }
+
+    // Duration in seconds, or -1 if not set
+    public int getDuracionSeconds(int row) {
+        return duracionSeconds[row] == NULL_INT ? -1 : duracionSeconds[row];
+    }
+
+    public boolean hasFechaEstreno(int row) {
+        return fechaEstrenoEpochDays[row] != NULL_INT;
+    }
+
+    public int getFechaEstrenoEpochDay(int row) {
+        return fechaEstrenoEpochDays[row];
+    }
+
+    public String getClasificacion(int row) {
+        return dictionary.valueOf(clasificacionOrdinals[row]);
+    }
+
+    public short getRegionOrdinal(int row) {
+        return regionOrdinals[row];
+    }
+
+    public String getRegion(int row) {
+        return dictionary.valueOf(regionOrdinals[row]);
+    }
+
+    public Dictionary getDictionary() {
+        return dictionary;
+    }
+
+    // Materializes a full Movie for one row, only for callers that need the object form
+    public Movie toMovie(int row) {
+        Duration duracion = duracionSeconds[row] == NULL_INT ? null : Duration.ofSeconds(duracionSeconds[row]);
+        LocalDate fechaEstreno = hasFechaEstreno(row) ? LocalDate.ofEpochDay(fechaEstrenoEpochDays[row]) : null;
+
+        Timestamp createdAt = null;
+        if (createdAtMicros[row] != NULL_LONG) {
+            // created_at has no time zone and EXTRACT reads it as UTC, while the driver's getTimestamp
+            // reads it as local time; rebuilding the wall-clock value keeps both paths equal
+            long micros = createdAtMicros[row];
+            createdAt = Timestamp.valueOf(LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC));
+        }
+
+        return new Movie(getId(row), titulos[row], duracion, fechaEstreno,
+                getClasificacion(row), getRegion(row), createdAt);
+    }
+
+    public List<Movie> toMovies() {
+        List<Movie> movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            movies.add(toMovie(i));
+        }
+        return movies;
+    }
+
+    // Adds this batch's per-region row counts into the given array, indexed by dictionary ordinal
+    public long[] countByRegion(long[] counts) {
+        if (counts.length < dictionary.size()) {
+            counts = Arrays.copyOf(counts, dictionary.size());
+        }
+        for (int i = 0; i < size; i++) {
+            if (regionOrdinals[i] != NULL_ORDINAL) {
+                counts[regionOrdinals[i]]++;
+            }
+        }
+        return counts;
+    }
+
+    // Maps the few distinct region and rating strings to small ordinals
+    public static class Dictionary {
+        private final Map<String, Short> ordinals = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        public synchronized short ordinalOf(String value) {
+            if (value == null) {
+                return NULL_ORDINAL;
+            }
+            Short ordinal = ordinals.get(value);
+            if (ordinal == null) {
+                if (values.size() >= Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values for dictionary encoding");
+                }
+                ordinal = (short) values.size();
+                ordinals.put(value, ordinal);
+                values.add(value);
+            }
+            return ordinal;
+        }
+
+        public synchronized String valueOf(short ordinal) {
+            return ordinal == NULL_ORDINAL ? null : values.get(ordinal);
+        }
+
+        public synchronized int size() {
+            return values.size();
+        }
+
+        // Turns ordinal-indexed counts back into value -> count
+        public synchronized Map<String, Long> decode(long[] counts) {
+            Map<String, Long> decoded = new LinkedHashMap<>();
+            for (int i = 0; i < Math.min(counts.length, values.size()); i++) {
+                if (counts[i] > 0) {
+                    decoded.put(values.get(i), counts[i]);
+                }
+            }
+            return decoded;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Scanner;
+
+public class PagedTableRenderer {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String[] headers;
+    private final int[] widths;
+    private final int pageSize;
+    private final Scanner scanner;
+
+    // Supplies one page of rows at a time; offset and limit are in rows
+    public interface PageSource {
+        List<String[]> fetch(int offset, int limit);
+    }
+
+    public PagedTableRenderer(String[] headers, int[] widths, int pageSize, Scanner scanner) {
+        this.headers = headers;
+        this.widths = widths;
+        this.pageSize = pageSize;
+        this.scanner = scanner;
+    }
+
+    // Shows one page at a time and only asks the source for the next page when the user requests it
+    public void render(PageSource source) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(lineWidth() + 1);
+        int page = 0;
+
+        while (true) {
+            // Ask for one extra row so we know whether there is a next page
+            List<String[]> rows = source.fetch(page * pageSize, pageSize + 1);
+            boolean hasNext = rows.size() > pageSize;
+            if (hasNext) {
+                rows = rows.subList(0, pageSize);
+            }
+
+            try {
+                writePage(out, line, rows, page);
+                out.flush();
+            } catch (IOException e) {
+                System.out.println("Error writing table: " + e.getMessage());
+                return;
+            }
+
+            if (rows.isEmpty() && page == 0) {
+                return;
+            }
+
+            String prompt = (hasNext ? "[n]ext, " : "") + (page > 0 ? "[p]revious, " : "") + "[g]o to page, [q]uit: ";
+            String command = readCommand(prompt);
+
+            if (command.equals("n") && hasNext) {
+                page++;
+            } else if (command.equals("p") && page > 0) {
+                page--;
+            } else if (command.startsWith("g")) {
+                page = readPageNumber(command.substring(1).trim(), page);
+            } else if (command.equals("q") || (command.isEmpty() && !hasNext)) {
+                return;
+            } else if (command.isEmpty()) {
+                page++;
+            } else {
+                System.out.println("Invalid option.");
+            }
+        }
+    }
+
+    private void writePage(Writer out, StringBuilder line, List<String[]> rows, int page) throws IOException {
+        line.setLength(0);
+        appendRow(line, headers);
+        out.append(line);
+
+        line.setLength(0);
+        for (int i = 0; i < lineWidth(); i++) {
+            line.append('-');
+        }
+        line.append('\n');
+        out.append(line);
+
+        if (rows.isEmpty()) {
+            out.append(page == 0 ? "No rows found.\n" : "No rows on page " + (page + 1) + ".\n");
+            return;
+        }
+
+        for (String[] row : rows) {
+            line.setLength(0);
+            appendRow(line, row);
+            out.append(line);
+        }
+        out.append("Page ").append(String.valueOf(page + 1))
+           .append(" (rows ").append(String.valueOf(page * pageSize + 1))
+           .append("-").append(String.valueOf(page * pageSize + rows.size())).append(")\n");
+    }
+
+    // Pads or truncates every value to its column width
+    private void appendRow(StringBuilder line, String[] values) {
+        for (int i = 0; i < widths.length; i++) {
+            String value = i < values.length && values[i] != null ? values[i] : "NULL";
+            int width = widths[i];
+
+            if (value.length() > width - 1) {
+                line.append(value, 0, width - 2).append('~');
+            } else {
+                line.append(value);
+                for (int pad = value.length(); pad < width - 1; pad++) {
+                    line.append(' ');
+                }
+            }
+            line.append(' ');
+        }
+        line.append('\n');
+    }
+
+    private int lineWidth() {
+        int total = 0;
+        for (int width : widths) {
+            total += width;
+        }
+        return total;
+    }
+
+    private String readCommand(String prompt) {
+        System.out.print(prompt);
+        if (!scanner.hasNextLine()) {
+            return "q";
+        }
+        return scanner.nextLine().trim().toLowerCase();
+    }
+
+    private int readPageNumber(String input, int currentPage) {
+        if (input.isEmpty()) {
+            input = readCommand("Page number: ");
+        }
+        try {
+            int target = Integer.parseInt(input) - 1;
+            if (target >= 0) {
+                return target;
+            }
+        } catch (NumberFormatException e) {
+            // Fall through to the error message
+        }
+        System.out.println("Invalid page number.");
+        return currentPage;
+    }
+}
@@ -0,0 +1,192 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Scans pelicula with one "WHERE region = ?" query per region, each on its own pooled connection,
+// and merges the results on the calling thread. Bounded queues between the region workers and the
+// caller give backpressure: a slow consumer stalls the workers instead of buffering the whole table.
+public class PartitionedScan {
+    // Called once per row; the batch is only valid until the callback returns
+    public interface RowConsumer {
+        void accept(MovieBatch batch, int row);
+    }
+
+    private static final int QUEUE_DEPTH = 4;
+    // Marks the end of a region's stream
+    private static final MovieBatch END = new MovieBatch(0);
+
+    private final GatewayRouter router;
+    private final String tableName;
+    private final List<String> regions;
+    private final boolean ordered;
+    private final int batchSize;
+    private final Deadline deadline;
+    private final MovieBatch.Dictionary dictionary = new MovieBatch.Dictionary();
+    private final AtomicReference<SQLException> failure = new AtomicReference<>();
+
+    public PartitionedScan(GatewayRouter router, String tableName, List<String> regions, boolean ordered,
+                           int batchSize, Deadline deadline) {
+        this.router = router;
+        this.tableName = tableName;
+        this.regions = regions;
+        this.ordered = ordered;
+        this.batchSize = batchSize;
+        this.deadline = deadline;
+    }
+
+    // Runs the scan to completion; throws the first error hit by any region
+    public void run(RowConsumer consumer) throws SQLException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, regions.size()), runnable -> {
+            Thread thread = new Thread(runnable, "region-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<BlockingQueue<MovieBatch>> queues = new ArrayList<>();
+            // Unordered scans share one queue so rows are consumed as soon as any region produces them
+            BlockingQueue<MovieBatch> shared = ordered ? null : new ArrayBlockingQueue<>(QUEUE_DEPTH * Math.max(1, regions.size()));
+
+            for (String region : regions) {
+                BlockingQueue<MovieBatch> queue = ordered ? new ArrayBlockingQueue<>(QUEUE_DEPTH) : shared;
+                queues.add(queue);
+                executor.execute(() -> scanRegion(region, queue));
+            }
+
+            if (ordered) {
+                mergeOrdered(queues, consumer);
+            } else {
+                drainUnordered(shared, regions.size(), consumer);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Partitioned scan interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        SQLException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void scanRegion(String region, BlockingQueue<MovieBatch> queue) {
+        String sql = "SELECT " + MovieBatch.SELECT_COLUMNS + " FROM " + tableName + " WHERE region = ?"
+                + (ordered ? " ORDER BY id" : "");
+
+        try (GatewayRouter.Lease lease = router.acquire(region, deadline)) {
+            Connection connection = lease.connection();
+            connection.setAutoCommit(false);
+            try (Deadline.Binding<PreparedStatement> binding = deadline.bind(connection.prepareStatement(sql))) {
+                PreparedStatement pstmt = binding.statement();
+                pstmt.setString(1, region);
+                pstmt.setFetchSize(batchSize);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (failure.get() == null) {
+                        // Each block gets its own batch because it is handed to another thread
+                        MovieBatch batch = new MovieBatch(batchSize, dictionary);
+                        if (batch.fill(rs) == 0) {
+                            break;
+                        }
+                        queue.put(batch);
+                    }
+                }
+                connection.commit();
+            } finally {
+                if (!connection.isClosed()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            }
+        } catch (SQLException e) {
+            failure.compareAndSet(null, new SQLException("Scan of region " + region + " failed: " + e.getMessage(), e.getSQLState(), e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainUnordered(BlockingQueue<MovieBatch> queue, int producers, RowConsumer consumer) throws InterruptedException {
+        int finished = 0;
+        while (finished < producers) {
+            MovieBatch batch = queue.take();
+            if (batch == END) {
+                finished++;
+                continue;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            for (int row = 0; row < batch.size(); row++) {
+                consumer.accept(batch, row);
+            }
+        }
+    }
+
+    // K-way merge of the per-region streams, each already sorted by id
+    private void mergeOrdered(List<BlockingQueue<MovieBatch>> queues, RowConsumer consumer) throws InterruptedException {
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, queues.size()), PartitionedScan::compareIds);
+
+        for (BlockingQueue<MovieBatch> queue : queues) {
+            Cursor cursor = new Cursor(queue);
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+
+        while (!heap.isEmpty() && failure.get() == null) {
+            Cursor cursor = heap.poll();
+            consumer.accept(cursor.batch, cursor.row);
+            if (cursor.advance()) {
+                heap.add(cursor);
+            }
+        }
+    }
+
+    // CockroachDB orders UUIDs by their bytes, i.e. as unsigned longs
+    private static int compareIds(Cursor a, Cursor b) {
+        int result = Long.compareUnsigned(a.batch.getIdMostBits(a.row), b.batch.getIdMostBits(b.row));
+        return result != 0 ? result : Long.compareUnsigned(a.batch.getIdLeastBits(a.row), b.batch.getIdLeastBits(b.row));
+    }
+
+    private static class Cursor {
+        private final BlockingQueue<MovieBatch> queue;
+        private MovieBatch batch;
+        private int row = -1;
+
+        Cursor(BlockingQueue<MovieBatch> queue) {
+            this.queue = queue;
+        }
+
+        // Moves to the next row, waiting for the next batch if needed; false once the region is done
+        boolean advance() throws InterruptedException {
+            row++;
+            while (batch == null || row >= batch.size()) {
+                MovieBatch next = queue.take();
+                if (next == END) {
+                    return false;
+                }
+                batch = next;
+                row = 0;
+            }
+            return true;
+        }
+    }
+}
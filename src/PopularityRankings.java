@@ -0,0 +1,223 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Most favorited movies (overall and per region) and soundtracks, computed from the cinefilo
+// favorites tables. Reads come from an immutable in-memory snapshot; the snapshot is rebuilt on an
+// interval and, in between, items that are already ranked are bumped as favorites are recorded.
+public class PopularityRankings {
+    public static final int TOP_K = 10;
+    private static final long REFRESH_INTERVAL_SECONDS = 60;
+
+    private final DatabaseManager dbManager;
+    private final ScheduledExecutorService refresher;
+    private boolean started = false;
+    private final CountDownLatch firstRefresh = new CountDownLatch(1);
+    private volatile Snapshot snapshot = new Snapshot(new HashMap<>(), new ArrayList<>(), new ArrayList<>(), 0);
+
+    public PopularityRankings(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rankings-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Safe to call more than once; only the first call schedules the refresher
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        refresher.scheduleWithFixedDelay(this::scheduledRefresh, 0, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void scheduledRefresh() {
+        try {
+            refresh();
+        } finally {
+            firstRefresh.countDown();
+        }
+    }
+
+    // Waits for the first scheduled refresh to finish, whether or not it succeeded; false on timeout.
+    // Lets a reader that just started the refresher show its result instead of querying a second time.
+    public boolean awaitFirstRefresh(long timeout, TimeUnit unit) {
+        try {
+            return firstRefresh.await(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    // Recomputes every ranking from the database; keeps the old snapshot if the cluster can't answer
+    public boolean refresh() {
+        if (!dbManager.isConnected()) {
+            return false;
+        }
+
+        DbResult<List<RankedItem>> movies = dbManager.getTopFavoriteMoviesByRegion(TOP_K, dbManager.defaultDeadline());
+        DbResult<List<RankedItem>> bandas = dbManager.getTopFavoriteBandas(TOP_K, dbManager.defaultDeadline());
+        if (!movies.isOk() || !bandas.isOk()) {
+            return false;
+        }
+
+        // Rows arrive ordered by region and rank
+        Map<String, List<RankedItem>> byRegion = new HashMap<>();
+        for (RankedItem item : movies.getValue()) {
+            byRegion.computeIfAbsent(item.getRegion(), region -> new ArrayList<>()).add(item);
+        }
+        byRegion.replaceAll((region, items) -> Collections.unmodifiableList(items));
+        Snapshot refreshed = new Snapshot(byRegion, topOf(movies.getValue()),
+                Collections.unmodifiableList(bandas.getValue()), System.currentTimeMillis());
+        // Same lock as the onXFavorited updates, so a bump can't overwrite a newer refresh with its older base
+        synchronized (this) {
+            snapshot = refreshed;
+        }
+        return true;
+    }
+
+    // Called after favorites were stored; only items already in a ranking can be adjusted without a query
+    public synchronized void onMoviesFavorited(Collection<UUID> peliculaIds) {
+        Snapshot current = snapshot;
+        Map<String, List<RankedItem>> byRegion = new HashMap<>();
+        boolean changed = false;
+
+        for (Map.Entry<String, List<RankedItem>> entry : current.moviesByRegion.entrySet()) {
+            List<RankedItem> bumped = bump(entry.getValue(), peliculaIds);
+            changed |= bumped != entry.getValue();
+            byRegion.put(entry.getKey(), bumped);
+        }
+
+        if (changed) {
+            List<RankedItem> all = new ArrayList<>();
+            for (List<RankedItem> items : byRegion.values()) {
+                all.addAll(items);
+            }
+            snapshot = new Snapshot(byRegion, topOf(all), current.bandas, current.refreshedAt);
+        }
+    }
+
+    public synchronized void onBandasFavorited(Collection<UUID> bandaIds) {
+        Snapshot current = snapshot;
+        List<RankedItem> bumped = bump(current.bandas, bandaIds);
+        if (bumped != current.bandas) {
+            snapshot = new Snapshot(current.moviesByRegion, current.movies, bumped, current.refreshedAt);
+        }
+    }
+
+    public List<RankedItem> getTopMovies() {
+        return snapshot.movies;
+    }
+
+    public List<RankedItem> getTopMovies(String region) {
+        List<RankedItem> items = snapshot.moviesByRegion.get(region);
+        return items != null ? items : Collections.emptyList();
+    }
+
+    // Regions that have ranked movies
+    public List<String> getRegions() {
+        List<String> regions = new ArrayList<>(snapshot.moviesByRegion.keySet());
+        Collections.sort(regions);
+        return regions;
+    }
+
+    public List<RankedItem> getTopBandas() {
+        return snapshot.bandas;
+    }
+
+    // Wall clock time of the last full refresh, 0 if none succeeded yet
+    public long getRefreshedAt() {
+        return snapshot.refreshedAt;
+    }
+
+    // Returns the same list if none of the ids is ranked, otherwise a re-sorted copy with updated counts
+    private static List<RankedItem> bump(List<RankedItem> items, Collection<UUID> ids) {
+        List<RankedItem> result = null;
+        for (int i = 0; i < items.size(); i++) {
+            RankedItem item = items.get(i);
+            int hits = 0;
+            for (UUID id : ids) {
+                if (id.equals(item.getId())) {
+                    hits++;
+                }
+            }
+            if (hits > 0) {
+                if (result == null) {
+                    result = new ArrayList<>(items);
+                }
+                result.set(i, new RankedItem(item.getId(), item.getTitulo(), item.getRegion(), item.getFavoritos() + hits));
+            }
+        }
+        if (result == null) {
+            return items;
+        }
+        result.sort((a, b) -> Long.compare(b.getFavoritos(), a.getFavoritos()));
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<RankedItem> topOf(List<RankedItem> items) {
+        List<RankedItem> sorted = new ArrayList<>(items);
+        sorted.sort((a, b) -> Long.compare(b.getFavoritos(), a.getFavoritos()));
+        return Collections.unmodifiableList(new ArrayList<>(sorted.subList(0, Math.min(TOP_K, sorted.size()))));
+    }
+
+    private static class Snapshot {
+        private final Map<String, List<RankedItem>> moviesByRegion;
+        private final List<RankedItem> movies;
+        private final List<RankedItem> bandas;
+        private final long refreshedAt;
+
+        Snapshot(Map<String, List<RankedItem>> moviesByRegion, List<RankedItem> movies, List<RankedItem> bandas, long refreshedAt) {
+            this.moviesByRegion = moviesByRegion;
+            this.movies = movies;
+            this.bandas = bandas;
+            this.refreshedAt = refreshedAt;
+        }
+    }
+
+    public static class RankedItem {
+        private final UUID id;
+        private final String titulo;
+        private final String region;
+        private final long favoritos;
+
+        public RankedItem(UUID id, String titulo, String region, long favoritos) {
+            this.id = id;
+            this.titulo = titulo;
+            this.region = region;
+            this.favoritos = favoritos;
+        }
+
+        public UUID getId() {
+            return id;
+        }
+
+        public String getTitulo() {
+            return titulo;
+        }
+
+        // Null for soundtracks, which are not partitioned by region
+        public String getRegion() {
+            return region;
+        }
+
+        public long getFavoritos() {
+            return favoritos;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Maps rows of one table to a bean-style entity class. Getter and setter method handles are looked
+// up once when the mapper is created (column fecha_estreno -> getFechaEstreno/setFechaEstreno), and
+// column positions are resolved once per result set by bind(), so reading a row does no name lookups
+// and no reflection. Supported column types: UUID, String, LocalDate, Duration (INTERVAL), Timestamp.
+public class RowMapper<T> {
+    private final Class<T> type;
+    private final String table;
+    private final MethodHandle constructor;
+    private final Column[] columns;
+
+    public RowMapper(Class<T> type, String table, String... columnNames) {
+        this.type = type;
+        this.table = table;
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            // Handles are adapted to Object signatures once here so every call can use invokeExact
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            this.columns = new Column[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                String property = toPropertyName(columnNames[i]);
+                Method getter = type.getMethod("get" + property);
+                Class<?> javaType = getter.getReturnType();
+                MethodHandle setter = lookup.findVirtual(type, "set" + property, MethodType.methodType(void.class, javaType));
+                columns[i] = new Column(columnNames[i], javaType,
+                        lookup.unreflect(getter).asType(MethodType.methodType(Object.class, Object.class)),
+                        setter.asType(MethodType.methodType(void.class, Object.class, Object.class)));
+            }
+        } catch (ReflectiveOperationException e) {
+            // A mismatch between an entity and its column list is a programming error
+            throw new IllegalArgumentException("Cannot map " + type.getSimpleName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    // Comma-separated column list in mapper order, for SELECT and INSERT statements
+    public String columnList(boolean includeId) {
+        StringBuilder list = new StringBuilder();
+        for (Column column : columns) {
+            if (!includeId && column.name.equals("id")) {
+                continue;
+            }
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append(column.name);
+        }
+        return list.toString();
+    }
+
+    public int columnCount(boolean includeId) {
+        int count = 0;
+        for (Column column : columns) {
+            if (includeId || !column.name.equals("id")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Resolves column positions for this result set; columns it doesn't contain are left unset
+    public Bound<T> bind(ResultSet rs) throws SQLException {
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                indexes[i] = rs.findColumn(columns[i].name);
+            } catch (SQLException e) {
+                indexes[i] = -1;
+            }
+        }
+        return new Bound<>(this, rs, indexes);
+    }
+
+    // Sets every non-id column of the entity as parameters starting at firstIndex; returns the next free index
+    public int bindParameters(PreparedStatement pstmt, int firstIndex, T entity) throws SQLException {
+        int index = firstIndex;
+        for (Column column : columns) {
+            if (column.name.equals("id")) {
+                continue;
+            }
+            Object value = get(column, entity);
+            if (value == null) {
+                pstmt.setNull(index++, column.sqlType());
+            } else if (column.javaType == Duration.class) {
+                pstmt.setString(index++, formatInterval((Duration) value));
+            } else if (column.javaType == LocalDate.class) {
+                pstmt.setDate(index++, Date.valueOf((LocalDate) value));
+            } else {
+                pstmt.setObject(index++, value);
+            }
+        }
+        return index;
+    }
+
+    // The same values bindParameters sets, for the slow query log
+    public Object[] parameters(T entity, Object... extra) {
+        List<Object> params = new ArrayList<>();
+        for (Column column : columns) {
+            if (!column.name.equals("id")) {
+                Object value = get(column, entity);
+                params.add(value instanceof Duration ? formatInterval((Duration) value) : value);
+            }
+        }
+        for (Object value : extra) {
+            params.add(value);
+        }
+        return params.toArray();
+    }
+
+    public UUID getId(T entity) {
+        return (UUID) get(column("id"), entity);
+    }
+
+    public void setId(T entity, UUID id) {
+        set(column("id"), entity, id);
+    }
+
+    // Shallow copy through the same handles, used to keep cached entities private
+    public T copy(T entity) {
+        T copy = newInstance();
+        for (Column column : columns) {
+            set(column, copy, get(column, entity));
+        }
+        return copy;
+    }
+
+    // Cached handles never fail for the types they were looked up on, so anything thrown here is a bug
+    private T newInstance() {
+        try {
+            return type.cast((Object) constructor.invokeExact());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot create " + type.getSimpleName(), e);
+        }
+    }
+
+    private Object get(Column column, T entity) {
+        try {
+            return (Object) column.getter.invokeExact((Object) entity);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot read " + column.name, e);
+        }
+    }
+
+    private void set(Column column, T entity, Object value) {
+        try {
+            column.setter.invokeExact((Object) entity, value);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot set " + column.name, e);
+        }
+    }
+
+    private Column column(String name) {
+        for (Column column : columns) {
+            if (column.name.equals(name)) {
+                return column;
+            }
+        }
+        throw new IllegalStateException(type.getSimpleName() + " has no " + name + " column");
+    }
+
+    private static String toPropertyName(String columnName) {
+        StringBuilder property = new StringBuilder();
+        for (String part : columnName.split("_")) {
+            if (!part.isEmpty()) {
+                property.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1));
+            }
+        }
+        return property.toString();
+    }
+
+    static String formatInterval(Duration duration) {
+        long hours = duration.toHours();
+        int minutes = duration.toMinutesPart();
+        int seconds = duration.toSecondsPart();
+
+        return String.format("%d hours %d minutes %d seconds", hours, minutes, seconds);
+    }
+
+    // Simplified parser for the interval formats CockroachDB returns ("01:30:00", "1 hour 30 mins")
+    static Duration parseInterval(String pgInterval) {
+        try {
+            if (pgInterval.contains(":")) {
+                // Parse time format HH:MM:SS
+                String[] parts = pgInterval.split(":");
+                int hours = Integer.parseInt(parts[0]);
+                int minutes = Integer.parseInt(parts[1]);
+                int seconds = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+
+                return Duration.ofHours(hours).plusMinutes(minutes).plusSeconds(seconds);
+            } else {
+                // Try to extract hours, minutes, seconds from text format
+                long hours = 0;
+                long minutes = 0;
+                long seconds = 0;
+
+                if (pgInterval.contains("hour")) {
+                    String hourPart = pgInterval.split("hour")[0].trim();
+                    hours = Long.parseLong(hourPart.split(" ")[0]);
+                }
+
+                if (pgInterval.contains("min")) {
+                    String minPart = pgInterval.split("min")[0].trim();
+                    if (minPart.contains("hour")) {
+                        minPart = minPart.split("hour")[1].trim();
+                    }
+                    minutes = Long.parseLong(minPart.split(" ")[0]);
+                }
+
+                if (pgInterval.contains("sec")) {
+                    String secPart = pgInterval.split("sec")[0].trim();
+                    if (secPart.contains("min")) {
+                        secPart = secPart.split("min")[1].trim();
+                    }
+                    seconds = Long.parseLong(secPart.split(" ")[0]);
+                }
+
+                return Duration.ofHours(hours).plusMinutes(minutes).plusSeconds(seconds);
+            }
+        } catch (Exception e) {
+            EventLog.warn("db.duration_parse_failed", "value", pgInterval);
+            return Duration.ZERO;
+        }
+    }
+
+    // A mapper tied to one result set; map() reads the row the result set is currently on
+    public static class Bound<T> {
+        private final RowMapper<T> mapper;
+        private final ResultSet rs;
+        private final int[] indexes;
+
+        private Bound(RowMapper<T> mapper, ResultSet rs, int[] indexes) {
+            this.mapper = mapper;
+            this.rs = rs;
+            this.indexes = indexes;
+        }
+
+        public T map() throws SQLException {
+            T entity = mapper.newInstance();
+            Column[] columns = mapper.columns;
+            for (int i = 0; i < columns.length; i++) {
+                int index = indexes[i];
+                if (index > 0) {
+                    mapper.set(columns[i], entity, columns[i].read(rs, index));
+                }
+            }
+            return entity;
+        }
+    }
+
+    private static class Column {
+        private final String name;
+        private final Class<?> javaType;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        Column(String name, Class<?> javaType, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.javaType = javaType;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        Object read(ResultSet rs, int index) throws SQLException {
+            if (javaType == UUID.class) {
+                return rs.getObject(index);
+            }
+            if (javaType == LocalDate.class) {
+                Date date = rs.getDate(index);
+                return date != null ? date.toLocalDate() : null;
+            }
+            if (javaType == Duration.class) {
+                String interval = rs.getString(index);
+                return interval != null ? parseInterval(interval) : null;
+            }
+            if (javaType == Timestamp.class) {
+                return rs.getTimestamp(index);
+            }
+            return rs.getString(index);
+        }
+
+        int sqlType() {
+            if (javaType == LocalDate.class) {
+                return Types.DATE;
+            }
+            if (javaType == Duration.class || javaType == UUID.class) {
+                return Types.OTHER;
+            }
+            if (javaType == Timestamp.class) {
+                return Types.TIMESTAMP;
+            }
+            return Types.VARCHAR;
+        }
+    }
+}
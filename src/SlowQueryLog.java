@@ -0,0 +1,212 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the most recent statements that exceeded a latency threshold, in memory and in a rolling file.
+// Configured through SLOW_QUERY_THRESHOLD_MS, SLOW_QUERY_SAMPLE_RATE, SLOW_QUERY_EXPLAIN and SLOW_QUERY_LOG_FILE.
+public class SlowQueryLog {
+    private static final int CAPACITY = 100;
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+    // Captures waiting for EXPLAIN or the file are dropped beyond this, the caller never waits on them
+    private static final int MAX_PENDING_CAPTURES = 100;
+    // Re-running a statement that was slow can be slower still; a stuck EXPLAIN would block the writer
+    private static final Duration EXPLAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final GatewayRouter router;
+    private final long thresholdNanos;
+    private final double sampleRate;
+    private final boolean explain;
+    private final File file;
+    private final Entry[] ring = new Entry[CAPACITY];
+    private int next = 0;
+    private int count = 0;
+    private final ExecutorService writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(MAX_PENDING_CAPTURES), runnable -> {
+                Thread thread = new Thread(runnable, "slow-query-log");
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public SlowQueryLog(GatewayRouter router, long thresholdMillis, double sampleRate, boolean explain, File file) {
+        this.router = router;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.sampleRate = sampleRate;
+        this.explain = explain;
+        this.file = file;
+    }
+
+    public static SlowQueryLog fromEnvironment(GatewayRouter router) {
+        long threshold = 500;
+        double sampleRate = 1.0;
+        try {
+            String value = System.getenv("SLOW_QUERY_THRESHOLD_MS");
+            if (value != null && !value.isEmpty()) {
+                threshold = Long.parseLong(value.trim());
+            }
+            value = System.getenv("SLOW_QUERY_SAMPLE_RATE");
+            if (value != null && !value.isEmpty()) {
+                sampleRate = Double.parseDouble(value.trim());
+            }
+        } catch (NumberFormatException e) {
+            EventLog.warn("config.invalid", "name", "SLOW_QUERY_*", "message", e.getMessage());
+        }
+        boolean explain = "true".equalsIgnoreCase(System.getenv("SLOW_QUERY_EXPLAIN"));
+        String path = System.getenv("SLOW_QUERY_LOG_FILE");
+        File file = new File(path != null && !path.isEmpty() ? path : "slow-queries.log");
+
+        return new SlowQueryLog(router, threshold, sampleRate, explain, file);
+    }
+
+    // Called after every tracked statement; cheap when the statement was fast
+    public void record(String sql, Object[] params, long elapsedNanos, String region) {
+        if (elapsedNanos < thresholdNanos) {
+            return;
+        }
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+
+        Entry entry = new Entry(Instant.now(), sql, params, elapsedNanos / 1_000_000.0, region);
+        synchronized (this) {
+            ring[next] = entry;
+            next = (next + 1) % CAPACITY;
+            count = Math.min(count + 1, CAPACITY);
+        }
+
+        writer.execute(() -> {
+            if (explain && isReadOnly(sql)) {
+                entry.plan = explainAnalyze(entry);
+            }
+            append(entry);
+        });
+    }
+
+    // Newest first
+    public synchronized List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            entries.add(ring[(next - i + CAPACITY) % CAPACITY]);
+        }
+        return entries;
+    }
+
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void close() {
+        writer.shutdown();
+    }
+
+    // EXPLAIN ANALYZE executes the statement, so it is only ever run for reads. SHOW statements
+    // can't be explained.
+    private static boolean isReadOnly(String sql) {
+        return sql.trim().regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    private String explainAnalyze(Entry entry) {
+        Deadline deadline = Deadline.after(EXPLAIN_TIMEOUT);
+        try (GatewayRouter.Lease lease = router.acquire(entry.getRegion(), deadline);
+             Deadline.Binding<PreparedStatement> binding = deadline.bind(lease.connection().prepareStatement("EXPLAIN ANALYZE (DISTSQL) " + entry.getSql()))) {
+            PreparedStatement pstmt = binding.statement();
+            Object[] params = entry.getParams();
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    plan.append(rs.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            return "EXPLAIN failed: " + e.getMessage();
+        }
+    }
+
+    private void append(Entry entry) {
+        try {
+            if (file.length() > MAX_FILE_BYTES) {
+                // Keep one previous file around
+                File previous = new File(file.getPath() + ".1");
+                previous.delete();
+                file.renameTo(previous);
+            }
+            try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+                out.println(entry);
+                out.println();
+            }
+        } catch (IOException e) {
+            // The in-memory ring buffer still has the entry
+        }
+    }
+
+    public static class Entry {
+        private final Instant time;
+        private final String sql;
+        private final Object[] params;
+        private final double elapsedMillis;
+        private final String region;
+        private volatile String plan;
+
+        private Entry(Instant time, String sql, Object[] params, double elapsedMillis, String region) {
+            this.time = time;
+            this.sql = sql;
+            this.params = params;
+            this.elapsedMillis = elapsedMillis;
+            this.region = region;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public Object[] getParams() {
+            return params;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String getRegion() {
+            return region;
+        }
+
+        // EXPLAIN ANALYZE output, null if not captured (yet)
+        public String getPlan() {
+            return plan;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %.1f ms region=%s%nSQL: %s%nParams: %s%s",
+                    time, elapsedMillis, region != null ? region : "default", sql, Arrays.toString(params),
+                    plan != null ? System.lineSeparator() + plan.trim() : "");
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Typed CRUD for a table with a UUID "id" primary key, built on a RowMapper. Works like the pelicula
+// methods in DatabaseManager: pooled gateway leases, deadlines and slow query tracking, JDBC batches
+// for bulk inserts, and a small by-id cache that holds private copies of the entities.
+public class TableDao<T> {
+    private static final int CACHE_SIZE = 500;
+    private static final long CACHE_TTL_MILLIS = 30000;
+
+    private final DatabaseManager dbManager;
+    private final RowMapper<T> mapper;
+    private final String description;
+    private final LruCache<UUID, T> cache = new LruCache<>(CACHE_SIZE, CACHE_TTL_MILLIS);
+    private final String insertSql;
+    private final String updateSql;
+
+    public TableDao(DatabaseManager dbManager, RowMapper<T> mapper) {
+        this.dbManager = dbManager;
+        this.mapper = mapper;
+        this.description = mapper.getTable();
+
+        StringBuilder placeholders = new StringBuilder();
+        StringBuilder assignments = new StringBuilder();
+        for (String column : mapper.columnList(false).split(", ")) {
+            placeholders.append(placeholders.length() > 0 ? ", ?" : "?");
+            assignments.append(assignments.length() > 0 ? ", " : "").append(column).append(" = ?");
+        }
+        this.insertSql = "INSERT INTO " + mapper.getTable() + " (" + mapper.columnList(false) + ") VALUES (" + placeholders + ")";
+        this.updateSql = "UPDATE " + mapper.getTable() + " SET " + assignments + " WHERE id = ?";
+    }
+
+    public DbResult<T> insert(T entity, Deadline deadline) {
+        DbResult<List<T>> result = insertAll(List.of(entity), deadline);
+        return result.isOk() ? DbResult.ok(entity) : DbResult.fromResult(result);
+    }
+
+    // Inserts all rows in one JDBC batch and fills in their generated ids
+    public DbResult<List<T>> insertAll(List<T> entities, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot add " + description + ".");
+        }
+        if (entities.isEmpty()) {
+            return DbResult.ok(entities);
+        }
+
+        Object[] params = entities.size() == 1 ? mapper.parameters(entities.get(0)) : new Object[] {"batch of " + entities.size()};
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(insertSql, new String[] {"id"}), deadline, lease, insertSql, params)) {
+            PreparedStatement pstmt = binding.statement();
+            for (T entity : entities) {
+                mapper.bindParameters(pstmt, 1, entity);
+                pstmt.addBatch();
+            }
+
+            pstmt.executeBatch();
+
+            // Generated keys come back in batch order
+            try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                int i = 0;
+                while (rs.next() && i < entities.size()) {
+                    T entity = entities.get(i++);
+                    mapper.setId(entity, (UUID) rs.getObject(1));
+                    cache.put(mapper.getId(entity), mapper.copy(entity));
+                }
+            }
+            return DbResult.ok(entities);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error adding " + description);
+        }
+    }
+
+    public DbResult<T> findById(UUID id, Deadline deadline) {
+        T cached = cache.get(id);
+        if (cached != null) {
+            return DbResult.ok(mapper.copy(cached));
+        }
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve " + description + ".");
+        }
+
+        String sql = "SELECT " + mapper.columnList(true) + " FROM " + mapper.getTable() + " WHERE id = ?";
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql), deadline, lease, sql, id)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, id);
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    T entity = mapper.bind(rs).map();
+                    cache.put(id, mapper.copy(entity));
+                    return DbResult.ok(entity);
+                }
+            }
+            return DbResult.notFound("No " + description + " found with ID: " + id);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error retrieving " + description);
+        }
+    }
+
+    // One page ordered by id
+    public DbResult<List<T>> findPage(int offset, int limit, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot retrieve " + description + ".");
+        }
+
+        String sql = "SELECT " + mapper.columnList(true) + " FROM " + mapper.getTable() + " ORDER BY id LIMIT ? OFFSET ?";
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql), deadline, lease, sql, limit, offset)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setInt(1, limit);
+            pstmt.setInt(2, offset);
+
+            List<T> entities = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.Bound<T> rows = mapper.bind(rs);
+                while (rs.next()) {
+                    entities.add(rows.map());
+                }
+            }
+            return DbResult.ok(entities);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error retrieving " + description);
+        }
+    }
+
+    public DbResult<T> update(T entity, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot update " + description + ".");
+        }
+
+        UUID id = mapper.getId(entity);
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(updateSql), deadline, lease, updateSql, mapper.parameters(entity, id))) {
+            PreparedStatement pstmt = binding.statement();
+            int next = mapper.bindParameters(pstmt, 1, entity);
+            pstmt.setObject(next, id);
+
+            int rowsAffected = pstmt.executeUpdate();
+            if (rowsAffected == 0) {
+                cache.invalidate(id);
+                return DbResult.notFound("No " + description + " found with ID: " + id);
+            }
+            cache.put(id, mapper.copy(entity));
+            return DbResult.ok(entity);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error updating " + description);
+        }
+    }
+
+    public DbResult<UUID> delete(UUID id, Deadline deadline) {
+        if (!dbManager.isConnected()) {
+            return DbResult.unavailable("Database connection not available. Cannot delete " + description + ".");
+        }
+
+        String sql = "DELETE FROM " + mapper.getTable() + " WHERE id = ?";
+        try (GatewayRouter.Lease lease = dbManager.acquire(null, deadline);
+             Deadline.Binding<PreparedStatement> binding = dbManager.track(lease.connection().prepareStatement(sql), deadline, lease, sql, id)) {
+            PreparedStatement pstmt = binding.statement();
+            pstmt.setObject(1, id);
+
+            int rowsAffected = pstmt.executeUpdate();
+            cache.invalidate(id);
+            return rowsAffected > 0 ? DbResult.ok(id) : DbResult.notFound("No " + description + " found with ID: " + id);
+        } catch (SQLException e) {
+            return DbResult.fromException(e, deadline, "Error deleting " + description);
+        }
+    }
+
+    public LruCache<UUID, T> getCache() {
+        return cache;
+    }
+}